@@ -9,69 +9,211 @@ import genius.core.actions.EndNegotiation;
 import genius.core.actions.Offer;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
 import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.ExperimentalUserModel;
 import genius.core.utility.AdditiveUtilitySpace;
 import genius.core.utility.UncertainAdditiveUtilitySpace;
-import linear_programming_test_model.MyAdditiveUtilitySpaceFactory;
 
-import java.io.FileDescriptor;
-import java.io.FileOutputStream;
-import java.io.PrintStream;
 import java.util.List;
+import java.util.Map;
 
 public class Agent29 extends AbstractNegotiationParty {
+    //-Dgroup29.estimator=gurobi to estimate the linearized model with Gurobi instead of the pure Java interior point solver,
+    //-Dgroup29.estimator=gurobi-bilinear for the original bilinear model
+    private static final String ESTIMATOR = System.getProperty("group29.estimator", "interior-point");
+    //-Dgroup29.cache=false to always solve instead of reusing estimates of earlier sessions
+    private static final boolean CACHE = Boolean.parseBoolean(System.getProperty("group29.cache", "true"));
+    //share of a time deadline the solver may take, and at most this many seconds (also the budget with a rounds deadline)
+    private static final double ESTIMATION_FRACTION = Double.parseDouble(System.getProperty("group29.estimation.fraction", "0.05"));
+    private static final double ESTIMATION_MAX_SECONDS = Double.parseDouble(System.getProperty("group29.estimation.maxSeconds", "10"));
+    //-Dgroup29.async=false to block init on the solver instead of starting with the Borda estimate
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty("group29.async", "true"));
+
     private AdditiveUtilitySpace additiveUtilitySpace;
-    private OpponentModel opponentModel;
+    private DomainIndex domainIndex;
+    //one opponent model per party, see OpponentRegistry
+    private OpponentRegistry opponents;
+    //the offer on the table, from whichever party offered last
     private Bid lastOffer;
     private JonnyBlack jb;
     private AdditiveUtilitySpace realUtilitySpace;
+    //per round predicted vs real utilities, see EventLog
+    private EventLog eventLog = EventLog.disabled();
+    private UtilityTable realUtilityTable;
+    private int round;
+    //latency of init, every round and the background solve, summarized at the end of the session
+    private final PhaseLatencies latencies = new PhaseLatencies();
+    //utility space of the background estimation with its tables built, handed over to chooseAction
+    private volatile OwnUtilityModel estimatedModel;
 
 
     @Override
     public void init(NegotiationInfo info) {
         super.init(info);
-        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.out)));
         if (hasPreferenceUncertainty()) {
             //get partial ordered bid ranking from uncertain user model
             BidRanking bidRanking = userModel.getBidRanking();
             //get domain
             Domain domain = bidRanking.getMaximalBid().getDomain();
-            //predicted user utility space
-            linear_programming_test_model.MyAdditiveUtilitySpaceFactory myFactory = new MyAdditiveUtilitySpaceFactory(domain);
+            //ordinal dictionary of the domain shared by the factory, BidCounter, OpponentModel and JonnyBlack
+            long start = System.nanoTime();
+            DomainIndex domainIndex = new DomainIndex(domain);
+            this.domainIndex = domainIndex;
+            latencies.record(PhaseLatencies.Phase.DOMAIN_INDEX, start);
+
+            //predicted user utility space, with ASYNC the instant Borda estimate until the solver is done
+            MyAdditiveUtilitySpaceFactory myFactory = ASYNC
+                    ? new MyAdditiveUtilitySpaceFactory(domainIndex, new BordaEstimator())
+                    : createFactory(domainIndex, estimationTimeLimit());
+            start = System.nanoTime();
             myFactory.estimateUsingBidRanks(bidRanking);
             AdditiveUtilitySpace additiveUtilitySpace = myFactory.getUtilitySpace();
             this.additiveUtilitySpace = additiveUtilitySpace;
+            latencies.record(PhaseLatencies.Phase.ESTIMATION, start);
+            if (ASYNC) {
+                startEstimation(domainIndex, bidRanking, estimationTimeLimit(), myFactory.getEstimate());
+            }
 
-            //create BidCounter, OpponentModel instances for initializing JonnyBlack
-            BidCounter bidCounter = new BidCounter(additiveUtilitySpace);
-            bidCounter.init();
-            OpponentModel opponentModel = new OpponentModel(additiveUtilitySpace, bidCounter);
-            this.opponentModel = opponentModel;
-            JonnyBlack jb = new JonnyBlack(additiveUtilitySpace, opponentModel);
+            //opponent models are made per party on its first offer, all of them share the domain index
+            OpponentRegistry opponents = new OpponentRegistry(domainIndex);
+            this.opponents = opponents;
+            start = System.nanoTime();
+            JonnyBlack jb = new JonnyBlack(new OwnUtilityModel(additiveUtilitySpace, domainIndex), domainIndex, opponents);
             this.jb = jb;
+            latencies.record(PhaseLatencies.Phase.RANKING, start);
+            jb.setLatencies(latencies);
 
             //get ground truth user model with real UtilitySpace
             ExperimentalUserModel experimentalUserModel = (ExperimentalUserModel) userModel;
             UncertainAdditiveUtilitySpace realUtilitySpace = experimentalUserModel.getRealUtilitySpace();
             this.realUtilitySpace = realUtilitySpace;
+            this.realUtilityTable = new UtilityTable(realUtilitySpace, domainIndex);
+
+            this.eventLog = EventLog.open(getTimeLine());
+            jb.setEventLog(eventLog);
+        }
+    }
+
+    /**
+     * solve on a daemon thread and build the tables of the result there too, the next chooseAction swaps them in.
+     * A result equal to the estimate in use (the solver fell back to Borda) is not handed over
+     * @param domainIndex
+     * @param bidRanking
+     * @param timeLimit seconds
+     * @param current estimate in use until then
+     */
+    private void startEstimation(DomainIndex domainIndex, BidRanking bidRanking, double timeLimit,
+                                 PreferenceEstimate current) {
+        Thread worker = new Thread(() -> {
+            try {
+                long start = System.nanoTime();
+                MyAdditiveUtilitySpaceFactory factory = createFactory(domainIndex, timeLimit);
+                factory.estimateUsingBidRanks(bidRanking);
+                latencies.record(PhaseLatencies.Phase.SOLVE, start);
+                if (factory.getEstimate().sameAs(current)) {
+                    return;
+                }
+                estimatedModel = new OwnUtilityModel(factory.getUtilitySpace(), domainIndex);
+            } catch (RuntimeException | LinkageError e) {
+                System.out.println("Estimation failed, keeping the Borda estimate: " + e);
+            }
+        }, "group29-estimator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * take over the utility space of the background estimation once it is there,
+     * JonnyBlack only ranks its feasible bids again, the tables are built by the estimator thread
+     */
+    private void swapEstimatedUtilitySpace() {
+        OwnUtilityModel estimated = estimatedModel;
+        if (estimated != null) {
+            estimatedModel = null;
+            additiveUtilitySpace = estimated.getUtilitySpace();
+            jb.updateUtilitySpace(estimated);
         }
     }
 
+    /**
+     * @return seconds the solver may take, a share of the deadline when it is in time, capped
+     */
+    private double estimationTimeLimit() {
+        TimeLineInfo timeLine = getTimeLine();
+        if (timeLine != null && timeLine.getType() == Timeline.Type.Time)
+            return Math.min(ESTIMATION_MAX_SECONDS, ESTIMATION_FRACTION * timeLine.getTotalTime());
+        return ESTIMATION_MAX_SECONDS;
+    }
+
+    /**
+     * @param domainIndex
+     * @param timeLimit seconds for the solver, and again for the fallback if it fails
+     * @return factory with the configured estimator
+     */
+    private static MyAdditiveUtilitySpaceFactory createFactory(DomainIndex domainIndex, double timeLimit) {
+        PreferenceEstimator estimator;
+        if (ESTIMATOR.equals("gurobi"))
+            estimator = new GurobiEstimator(GurobiEstimator.Mode.LINEARIZED, timeLimit);
+        else if (ESTIMATOR.equals("gurobi-bilinear"))
+            estimator = new GurobiEstimator(GurobiEstimator.Mode.BILINEAR, timeLimit);
+        else
+            estimator = new InteriorPointEstimator(timeLimit);
+        return new MyAdditiveUtilitySpaceFactory(domainIndex, CACHE ? new CachingEstimator(estimator) : estimator,
+                new InteriorPointEstimator(timeLimit));
+    }
+
     @Override
     public Action chooseAction(List<Class<? extends Action>> possibleActions) {
-        // Check for acceptance if we have received an offer
-        if (lastOffer != null)
-            if (additiveUtilitySpace.getUtility(lastOffer) >= jb.getAgreementValue()) {
-                return new Accept(this.getPartyId(), lastOffer);
-            }
-            else if (timeline.getTime() >= 0.99)
-                return new EndNegotiation(getPartyId());
+        long start = System.nanoTime();
+        try {
+            swapEstimatedUtilitySpace();
+
+            round += 1;
+
+            // Check for acceptance if we have received an offer
+            if (lastOffer != null)
+                if (additiveUtilitySpace.getUtility(lastOffer) >= jb.getAgreementValue()) {
+                    record(EventLog.ACCEPT, domainIndex.encode(lastOffer));
+                    return new Accept(this.getPartyId(), lastOffer);
+                }
+                else if (timeline.getTime() >= 0.99) {
+                    record(EventLog.END, -1);
+                    return new EndNegotiation(getPartyId());
+                }
+
+            long offeringBidId = jb.makeAnOffer();
+            Bid OfferingBid = domainIndex.toBid(offeringBidId);
+            record(EventLog.OFFER, offeringBidId);
+            return new Offer(this.getPartyId(), OfferingBid);
+        } finally {
+            latencies.record(PhaseLatencies.Phase.CHOOSE_ACTION, start);
+        }
+    }
 
-        Bid OfferingBid = jb.makeAnOffer();
-        System.out.println("Predicted and Real Bid Utility for User:" + additiveUtilitySpace.getUtility(OfferingBid) + " " + realUtilitySpace.getUtility(OfferingBid));
-        System.out.println("Predicted Utility for Opponent:" + jb.getOpponentUtility(OfferingBid));
-        return new Offer(this.getPartyId(), OfferingBid);
+    /**
+     * predicted and real utility for us and predicted utility for the opponent of a bid, into the event log
+     * @param type
+     * @param bidId -1 for none
+     */
+    private void record(int type, long bidId) {
+        if (bidId < 0) {
+            eventLog.record(round, type, bidId, Double.NaN, Double.NaN, Double.NaN, jb.getAgreementValue(), jb.getCare());
+            return;
+        }
+        eventLog.record(round, type, bidId, jb.getUtility(bidId), realUtilityTable.getUtility(bidId),
+                jb.getOpponentUtility(bidId), jb.getAgreementValue(), jb.getCare());
+    }
+
+    /**
+     * write out the rest of the event log and the latency summary
+     */
+    @Override
+    public Map<String, String> negotiationEnded(Bid acceptedBid) {
+        eventLog.close();
+        System.out.print(latencies.getSummary());
+        return super.negotiationEnded(acceptedBid);
     }
 
     @Override
@@ -80,7 +222,7 @@ public class Agent29 extends AbstractNegotiationParty {
     }
 
     /**
-     * Remembers the offers received by the opponent.
+     * Remembers the offers received by the opponents, in the model of the party that sent it.
      */
     @Override
     public void receiveMessage(AgentID sender, Action action)
@@ -88,10 +230,14 @@ public class Agent29 extends AbstractNegotiationParty {
         //add received bids to opponent model for further prediction
         if (action instanceof Offer)
         {
+            long start = System.nanoTime();
             Bid lastOffer = ((Offer) action).getBid();
             this.lastOffer = lastOffer;
-            opponentModel.addBid(lastOffer);
-            jb.updateOpponentModel(opponentModel);
+            long updateStart = System.nanoTime();
+            opponents.addOffer(sender, lastOffer);
+            latencies.record(PhaseLatencies.Phase.OPPONENT_UPDATE, updateStart);
+            record(EventLog.RECEIVED, domainIndex.encode(lastOffer));
+            latencies.record(PhaseLatencies.Phase.RECEIVE_MESSAGE, start);
         }
 
     }
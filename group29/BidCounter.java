@@ -1,77 +1,130 @@
 package group29;
 
 import genius.core.Bid;
-import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
-import genius.core.issue.ValueDiscrete;
-import genius.core.utility.AdditiveUtilitySpace;
-import genius.core.issue.Issue;
 
-import java.util.*;
+import java.util.Arrays;
 
 public class BidCounter {
 
-    private HashMap<Issue, HashMap<ValueDiscrete, Integer>> issue_table;
+    //issue_table[issue ordinal][value ordinal] = times the value was offered
+    private int[][] issue_table;
+    //rank_table[issue ordinal][value ordinal] = 1 + number of values of the issue offered more often
+    private int[][] rank_table;
+    //sum of the squared counts of every issue
+    private long[] sum_of_squares;
+    private int total;
 
-    private AdditiveUtilitySpace additiveUtilitySpace;
+    private DomainIndex domainIndex;
 
-    public BidCounter(AdditiveUtilitySpace additiveUtilitySpace)
+    public BidCounter(DomainIndex domainIndex)
     {
-        this.additiveUtilitySpace = additiveUtilitySpace;
+        this.domainIndex = domainIndex;
     }
 
     public void init()
     {
-        List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        HashMap<Issue, HashMap<ValueDiscrete, Integer>> issue_table = new HashMap<Issue, HashMap<ValueDiscrete, Integer>>();
-        for (Issue issue : issues) {
-            IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-            HashMap<ValueDiscrete, Integer> value_table = new HashMap<ValueDiscrete, Integer>();
-            for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-                value_table.put(valueDiscrete, 0);
-            }
-            issue_table.put(issue, value_table);
+        int issueCount = domainIndex.getNumberOfIssues();
+        int[][] issue_table = new int[issueCount][];
+        int[][] rank_table = new int[issueCount][];
+        for (int i = 0; i < issueCount; i++) {
+            issue_table[i] = new int[domainIndex.getNumberOfValues(i)];
+            rank_table[i] = new int[domainIndex.getNumberOfValues(i)];
+            Arrays.fill(rank_table[i], 1);
         }
         this.issue_table = issue_table;
+        this.rank_table = rank_table;
+        this.sum_of_squares = new long[issueCount];
+        this.total = 0;
     }
 
     public void addBid(Bid bid)
     {
-        List<Issue> issues = bid.getIssues();
-        for (Issue issue : issues) {
-            ValueDiscrete value = (ValueDiscrete) bid.getValue(issue);
-            HashMap<ValueDiscrete, Integer> value_table = issue_table.get(issue);
-            value_table.put(value, value_table.get(value) + 1);
+        addBid(domainIndex.encode(bid));
+    }
+
+    /**
+     * count a received bid, the counts, ranks and sums of squares are all kept up to date here
+     * @param bidId
+     */
+    public void addBid(long bidId)
+    {
+        for (int i = 0; i < issue_table.length; i++) {
+            int[] counts = issue_table[i];
+            int[] ranks = rank_table[i];
+            int value = domainIndex.getValueOrdinal(bidId, i);
+            int count = counts[value];
+
+            //value goes from count to count + 1: it passes the values that had count,
+            //and no longer trails the values that had count + 1
+            for (int v = 0; v < counts.length; v++) {
+                if (v == value) {
+                    continue;
+                }
+                if (counts[v] == count + 1) {
+                    ranks[value] -= 1;
+                }
+                else if (counts[v] == count) {
+                    ranks[v] += 1;
+                }
+            }
+
+            counts[value] = count + 1;
+            sum_of_squares[i] += 2L * count + 1;
         }
+        total += 1;
+    }
+
+    /**
+     * @param issue issue ordinal
+     * @return count of every value ordinal of the issue
+     */
+    public int[] getOptionCount(int issue)
+    {
+        return issue_table[issue];
+    }
+
+    /**
+     * @param issue issue ordinal
+     * @return rank of every value ordinal of the issue, 1 is the most offered, equal counts share a rank
+     */
+    public int[] getOptionRank(int issue)
+    {
+        return rank_table[issue];
+    }
+
+    /**
+     * @param issue issue ordinal
+     * @return sum over the values of the issue of count * count
+     */
+    public long getSumOfSquares(int issue)
+    {
+        return sum_of_squares[issue];
     }
 
-    public HashMap<ValueDiscrete, Integer> getOptionCount(Issue issue)
+    /**
+     * @return number of bids counted
+     */
+    public int getTotal()
     {
-        return issue_table.get(issue);
+        return total;
     }
 
     public String getBidCountStr()
     {
-        String s = "";
-        Set issue_entrySet = issue_table.entrySet();
-        Iterator issue_it = issue_entrySet.iterator();
-        while(issue_it.hasNext())
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < issue_table.length; i++)
         {
-            Map.Entry<Issue, HashMap<ValueDiscrete, Integer>> issue_map = (Map.Entry<Issue, HashMap<ValueDiscrete, Integer>>)issue_it.next();
-            String issue_name = issue_map.getKey().getName();
-            s = s + "issue name: " + issue_name + "\n";
-            Set value_entrySet = issue_map.getValue().entrySet();
-            Iterator value_it = value_entrySet.iterator();
-            while(value_it.hasNext())
+            String issue_name = domainIndex.getIssue(i).getName();
+            s.append("issue name: ").append(issue_name).append('\n');
+            for (int v = 0; v < issue_table[i].length; v++)
             {
-                Map.Entry<ValueDiscrete, Integer> value_map = (Map.Entry<ValueDiscrete, Integer>) value_it.next();
-                String value = value_map.getKey().getValue();
-                int count = value_map.getValue();
-                s = s + "option name: " + value + " count: " + count + "\n";
+                String value = domainIndex.getValue(i, v).getValue();
+                int count = issue_table[i][v];
+                s.append("option name: ").append(value).append(" count: ").append(count).append('\n');
             }
-            s = s + "\n";
+            s.append('\n');
         }
-        return s;
+        return s.toString();
     }
 
 }
@@ -0,0 +1,146 @@
+package group29;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy walk over the outcome space of a DomainIndex in mixed-radix order.
+ * Nothing is materialized: the enumerator holds a range [origin, fence) of bid ids
+ * and splits it in halves, so it can feed a parallel stream.
+ */
+public class BidEnumerator implements Spliterator.OfLong {
+
+    /**
+     * receives a bid id together with the value ordinals of every issue,
+     * the ordinals array is reused between calls and must not be kept
+     */
+    public interface OrdinalConsumer {
+        void accept(long bidId, int[] ordinals);
+    }
+
+    //don't split ranges smaller than this, the per bid work is tiny
+    private static final long MIN_SPLIT_SIZE = 1 << 12;
+
+    private final DomainIndex domainIndex;
+    private long origin;
+    private final long fence;
+
+    public BidEnumerator(DomainIndex domainIndex)
+    {
+        this(domainIndex, 0, domainIndex.size());
+    }
+
+    public BidEnumerator(DomainIndex domainIndex, long origin, long fence)
+    {
+        this.domainIndex = domainIndex;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * stream of all bid ids of the domain
+     * @param domainIndex
+     * @param parallel
+     * @return
+     */
+    public static LongStream stream(DomainIndex domainIndex, boolean parallel)
+    {
+        return StreamSupport.longStream(new BidEnumerator(domainIndex), parallel);
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action)
+    {
+        if (origin < fence)
+        {
+            action.accept(origin);
+            origin += 1;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action)
+    {
+        long bidId = origin;
+        long end = fence;
+        origin = end;
+        for (; bidId < end; bidId++)
+        {
+            action.accept(bidId);
+        }
+    }
+
+    /**
+     * walk the remaining bids and keep the value ordinals up to date like an odometer,
+     * so no division is needed per bid
+     * @param action
+     */
+    public void forEachRemaining(OrdinalConsumer action)
+    {
+        long bidId = origin;
+        long end = fence;
+        origin = end;
+        if (bidId >= end)
+        {
+            return;
+        }
+
+        int[] ordinals = new int[domainIndex.getNumberOfIssues()];
+        domainIndex.decode(bidId, ordinals);
+        int last = ordinals.length - 1;
+        while (true)
+        {
+            action.accept(bidId, ordinals);
+            bidId += 1;
+            if (bidId >= end)
+            {
+                return;
+            }
+            //increment the least significant digit and carry
+            int i = last;
+            while (++ordinals[i] == domainIndex.getNumberOfValues(i))
+            {
+                ordinals[i] = 0;
+                i -= 1;
+            }
+        }
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit()
+    {
+        long size = fence - origin;
+        if (size < 2 * MIN_SPLIT_SIZE)
+        {
+            return null;
+        }
+        long mid = origin + (size >>> 1);
+        BidEnumerator prefix = new BidEnumerator(domainIndex, origin, mid);
+        origin = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return fence - origin;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super Long> getComparator()
+    {
+        //ids are in natural order
+        return null;
+    }
+}
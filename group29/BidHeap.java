@@ -0,0 +1,152 @@
+package group29;
+
+/**
+ * Bounded min heap of (bid id, score) pairs in two primitive arrays, it keeps the best capacity pairs offered to it
+ * without allocating per pair. The worst kept pair is at the root, so it is also the bound a search has to beat.
+ *
+ * Equal scores are ordered by id. Opponent scores prefer the lower id, own utilities prefer the higher one,
+ * which is the order of ScoredBids.sortDescending.
+ */
+final class BidHeap {
+
+    private final long[] ids;
+    private final double[] scores;
+    private final boolean preferLowerId;
+    private int size;
+
+    /**
+     * @param capacity
+     * @param preferLowerId on equal scores the lower id ranks higher, otherwise the higher id does
+     */
+    BidHeap(int capacity, boolean preferLowerId)
+    {
+        this.ids = new long[Math.max(capacity, 0)];
+        this.scores = new double[ids.length];
+        this.preferLowerId = preferLowerId;
+        this.size = 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isFull()
+    {
+        return size == ids.length;
+    }
+
+    long getId(int i)
+    {
+        return ids[i];
+    }
+
+    double getScore(int i)
+    {
+        return scores[i];
+    }
+
+    /**
+     * @return id of the worst kept pair, the heap must not be empty
+     */
+    long minId()
+    {
+        return ids[0];
+    }
+
+    /**
+     * @return score of the worst kept pair, the heap must not be empty
+     */
+    double minScore()
+    {
+        return scores[0];
+    }
+
+    /**
+     * @param id1
+     * @param score1
+     * @param id2
+     * @param score2
+     * @return true if the first pair ranks below the second
+     */
+    boolean lower(long id1, double score1, long id2, double score2)
+    {
+        int c = Double.compare(score1, score2);
+        return c < 0 || (c == 0 && (preferLowerId ? id1 > id2 : id1 < id2));
+    }
+
+    /**
+     * keep the pair if the heap is not full or it ranks above the worst kept one
+     * @param id
+     * @param score
+     */
+    void offer(long id, double score)
+    {
+        if (size < ids.length)
+        {
+            //sift up
+            int i = size;
+            size += 1;
+            while (i > 0)
+            {
+                int parent = (i - 1) >>> 1;
+                if (!lower(id, score, ids[parent], scores[parent]))
+                {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+        else if (size > 0 && lower(ids[0], scores[0], id, score))
+        {
+            siftDown(id, score);
+        }
+    }
+
+    //put the pair at the root and move it down
+    private void siftDown(long id, double score)
+    {
+        int i = 0;
+        while (true)
+        {
+            int child = 2 * i + 1;
+            if (child >= size)
+            {
+                break;
+            }
+            if (child + 1 < size && lower(ids[child + 1], scores[child + 1], ids[child], scores[child]))
+            {
+                child += 1;
+            }
+            if (!lower(ids[child], scores[child], id, score))
+            {
+                break;
+            }
+            ids[i] = ids[child];
+            scores[i] = scores[child];
+            i = child;
+        }
+        ids[i] = id;
+        scores[i] = score;
+    }
+
+    /**
+     * pop the minimum repeatedly, filling the result from the back, the heap is empty afterwards
+     * @return the kept ids from high to low score
+     */
+    long[] drainDescending()
+    {
+        long[] result = new long[size];
+        while (size > 0)
+        {
+            result[size - 1] = ids[0];
+            size -= 1;
+            siftDown(ids[size], scores[size]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package group29;
+
+import java.util.Arrays;
+
+/**
+ * Set of DomainIndex bid ids as a compressed bitmap in the style of Roaring.
+ *
+ * Ids are split in a high part, the key of a container, and their low 16 bits. Containers are kept sorted by key,
+ * a container with at most ARRAY_LIMIT ids is a sorted char array, a fuller one is a bitmap of 1024 words.
+ * Bids that are close in the mixed-radix order share containers, so a set costs a few bytes per bid instead
+ * of a boxed Long in a hash set.
+ */
+public class BidSet {
+
+    //an array container never holds more ids than this, a bitmap never fewer (4096 chars = 1024 longs)
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private long[] keys = new long[4];
+    private Container[] containers = new Container[keys.length];
+    private int size;
+
+    /**
+     * @param bid
+     * @return true if the bid was not in the set yet
+     */
+    public boolean add(long bid)
+    {
+        long key = bid >>> 16;
+        char low = (char) bid;
+        int k = find(key);
+        if (k < 0)
+        {
+            k = -k - 1;
+            insert(k, key, new ArrayContainer());
+        }
+        Container container = containers[k];
+        if (container.contains(low))
+        {
+            return false;
+        }
+        containers[k] = container.add(low);
+        return true;
+    }
+
+    public boolean contains(long bid)
+    {
+        int k = find(bid >>> 16);
+        return k >= 0 && containers[k].contains((char) bid);
+    }
+
+    /**
+     * @return a set with the same ids that does not share containers with this one
+     */
+    public BidSet copy()
+    {
+        BidSet copy = new BidSet();
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.containers = new Container[containers.length];
+        for (int k = 0; k < size; k++)
+        {
+            copy.containers[k] = containers[k].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @param key
+     * @return index of the container, or -(insertion point) - 1
+     */
+    private int find(long key)
+    {
+        //ids are mostly added in increasing order, check the last container first
+        if (size > 0 && keys[size - 1] == key)
+        {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int k, long key, Container container)
+    {
+        if (size == keys.length)
+        {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, k, keys, k + 1, size - k);
+        System.arraycopy(containers, k, containers, k + 1, size - k);
+        keys[k] = key;
+        containers[k] = container;
+        size++;
+    }
+
+    /**
+     * the low 16 bits of the ids that share a key
+     */
+    private interface Container {
+        boolean contains(char low);
+
+        /**
+         * @return this container with low added, or a bitmap that replaces it
+         */
+        Container add(char low);
+
+        Container copy();
+    }
+
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        public boolean contains(char low)
+        {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        public Container add(char low)
+        {
+            if (cardinality == ARRAY_LIMIT)
+            {
+                long[] words = new long[BITMAP_WORDS];
+                for (int n = 0; n < cardinality; n++)
+                {
+                    words[values[n] >>> 6] |= 1L << values[n];
+                }
+                return new BitmapContainer(words).add(low);
+            }
+            int p = -Arrays.binarySearch(values, 0, cardinality, low) - 1;
+            if (cardinality == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, p, values, p + 1, cardinality - p);
+            values[p] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public Container copy()
+        {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, values.length);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+    }
+
+    private static final class BitmapContainer implements Container {
+        private final long[] words;
+
+        private BitmapContainer(long[] words)
+        {
+            this.words = words;
+        }
+
+        @Override
+        public boolean contains(char low)
+        {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public Container add(char low)
+        {
+            words[low >>> 6] |= 1L << low;
+            return this;
+        }
+
+        @Override
+        public Container copy()
+        {
+            return new BitmapContainer(Arrays.copyOf(words, words.length));
+        }
+    }
+}
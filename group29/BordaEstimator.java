@@ -0,0 +1,88 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+
+import java.util.List;
+
+/**
+ * Instant heuristic estimate from the positions in the ranking, no solver involved.
+ *
+ * Every bid scores its Borda count, position / (size - 1) with the worst bid at 0 and the best at 1.
+ * A value evaluates to the mean score of the bids that offer it, rescaled so the best value of the issue is 1
+ * and the worst 0; values that never occur get the lowest mean of the issue.
+ * An issue weighs the spread between its best and worst mean, values that move the rank a lot matter more.
+ */
+public class BordaEstimator implements PreferenceEstimator {
+
+    @Override
+    public String toString()
+    {
+        return "BordaEstimator";
+    }
+
+    @Override
+    public PreferenceEstimate estimate(DomainIndex domainIndex, BidRanking bidRanking)
+    {
+        int issueCount = domainIndex.getNumberOfIssues();
+        double[][] scoreSum = new double[issueCount][];
+        int[][] count = new int[issueCount][];
+        for (int i = 0; i < issueCount; i++)
+        {
+            scoreSum[i] = new double[domainIndex.getNumberOfValues(i)];
+            count[i] = new int[domainIndex.getNumberOfValues(i)];
+        }
+
+        //bid order goes from low to high
+        List<Bid> bidOrder = bidRanking.getBidOrder();
+        int size = bidOrder.size();
+        int[] ordinals = new int[issueCount];
+        for (int position = 0; position < size; position++)
+        {
+            double score = size > 1 ? (double) position / (size - 1) : 1.0;
+            domainIndex.decode(domainIndex.encode(bidOrder.get(position)), ordinals);
+            for (int i = 0; i < issueCount; i++)
+            {
+                scoreSum[i][ordinals[i]] += score;
+                count[i][ordinals[i]] += 1;
+            }
+        }
+
+        double[] weights = new double[issueCount];
+        double[][] utilities = new double[issueCount][];
+        double totalWeight = 0;
+        for (int i = 0; i < issueCount; i++)
+        {
+            int valueCount = domainIndex.getNumberOfValues(i);
+            double[] mean = new double[valueCount];
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int v = 0; v < valueCount; v++)
+            {
+                if (count[i][v] > 0)
+                {
+                    mean[v] = scoreSum[i][v] / count[i][v];
+                    min = Math.min(min, mean[v]);
+                    max = Math.max(max, mean[v]);
+                }
+            }
+
+            utilities[i] = new double[valueCount];
+            double spread = max > min ? max - min : 0;
+            for (int v = 0; v < valueCount; v++)
+            {
+                //an issue that does not separate the bids gets a flat evaluation
+                utilities[i][v] = spread > 0 ? (count[i][v] > 0 ? (mean[v] - min) / spread : 0.0) : 1.0;
+            }
+            weights[i] = spread;
+            totalWeight += spread;
+        }
+
+        for (int i = 0; i < issueCount; i++)
+        {
+            weights[i] = totalWeight > 0 ? weights[i] / totalWeight : 1.0 / issueCount;
+        }
+        //a heuristic, nothing is optimal about it
+        return new PreferenceEstimate(weights, utilities, false, Double.NaN);
+    }
+}
@@ -0,0 +1,233 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+import genius.core.uncertainty.BidRanking;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Persistent cache in front of another PreferenceEstimator.
+ *
+ * The key is a SHA-256 of the estimator, the issues and values of the domain, and the bid order of the ranking,
+ * so the same profile and ranking in a later session reads the estimate from a file instead of solving again.
+ * Entries are small versioned binary files in the cache directory; a missing, old or broken file is a miss.
+ * Only optimal estimates are stored. The cache is best effort, any IO problem falls through to the delegate.
+ */
+public class CachingEstimator implements PreferenceEstimator {
+
+    //"G29E", and the format version, bump it when the layout or the estimation changes
+    private static final int MAGIC = 0x47323945;
+    private static final int VERSION = 1;
+
+    private final PreferenceEstimator delegate;
+    private final Path directory;
+
+    /**
+     * cache in -Dgroup29.cache.dir, default java.io.tmpdir/group29-cache
+     * @param delegate
+     */
+    public CachingEstimator(PreferenceEstimator delegate)
+    {
+        this(delegate, Paths.get(System.getProperty("group29.cache.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "group29-cache").toString())));
+    }
+
+    public CachingEstimator(PreferenceEstimator delegate, Path directory)
+    {
+        this.delegate = delegate;
+        this.directory = directory;
+    }
+
+    @Override
+    public PreferenceEstimate estimate(DomainIndex domainIndex, BidRanking bidRanking)
+    {
+        Path file = directory.resolve(key(domainIndex, bidRanking) + ".bin");
+        PreferenceEstimate estimate = read(file, domainIndex);
+        if (estimate != null)
+        {
+            System.out.println("Estimate read from cache " + file);
+            return estimate;
+        }
+        estimate = delegate.estimate(domainIndex, bidRanking);
+        //an incumbent cut short by the time budget may be improved on next time
+        if (estimate.isOptimal())
+        {
+            write(file, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the estimator that solves on a cache miss
+     */
+    public PreferenceEstimator getDelegate()
+    {
+        return delegate;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CachingEstimator(" + delegate + ")";
+    }
+
+    /**
+     * @param domainIndex
+     * @param bidRanking
+     * @return hex SHA-256 of the estimator, the domain layout and the bid order
+     */
+    String key(DomainIndex domainIndex, BidRanking bidRanking)
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        DigestSink out = new DigestSink(digest);
+        DataOutputStream data = new DataOutputStream(out);
+        try {
+            data.writeInt(VERSION);
+            data.writeUTF(delegate.toString());
+            data.writeInt(domainIndex.getNumberOfIssues());
+            for (int i = 0; i < domainIndex.getNumberOfIssues(); i++)
+            {
+                IssueDiscrete issue = domainIndex.getIssue(i);
+                data.writeInt(issue.getNumber());
+                data.writeUTF(issue.getName());
+                data.writeInt(domainIndex.getNumberOfValues(i));
+                for (int v = 0; v < domainIndex.getNumberOfValues(i); v++)
+                {
+                    data.writeUTF(domainIndex.getValue(i, v).getValue());
+                }
+            }
+            data.writeInt(bidRanking.getSize());
+            for (Bid bid : bidRanking.getBidOrder())
+            {
+                data.writeLong(domainIndex.encode(bid));
+            }
+            data.writeDouble(bidRanking.getLowUtility());
+            data.writeDouble(bidRanking.getHighUtility());
+            data.flush();
+        } catch (IOException e) {
+            //a digest does not do IO
+            throw new UncheckedIOException(e);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param file
+     * @param domainIndex
+     * @return the cached estimate, null if there is none or it does not fit the domain
+     */
+    private PreferenceEstimate read(Path file, DomainIndex domainIndex)
+    {
+        if (!Files.isRegularFile(file))
+        {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                return null;
+            }
+            int issueCount = in.readInt();
+            if (issueCount != domainIndex.getNumberOfIssues())
+            {
+                return null;
+            }
+            double[] weights = new double[issueCount];
+            double[][] utilities = new double[issueCount][];
+            for (int i = 0; i < issueCount; i++)
+            {
+                int valueCount = in.readInt();
+                if (valueCount != domainIndex.getNumberOfValues(i))
+                {
+                    return null;
+                }
+                weights[i] = in.readDouble();
+                utilities[i] = new double[valueCount];
+                for (int v = 0; v < valueCount; v++)
+                {
+                    utilities[i][v] = in.readDouble();
+                }
+            }
+            return new PreferenceEstimate(weights, utilities);
+        } catch (IOException e) {
+            System.out.println("Estimate cache read failed " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * write to a temporary file first and move it in place, so a reader never sees half an entry
+     * @param file
+     * @param estimate
+     */
+    private void write(Path file, PreferenceEstimate estimate)
+    {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "estimate", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(estimate.getNumberOfIssues());
+                for (int i = 0; i < estimate.getNumberOfIssues(); i++)
+                {
+                    out.writeInt(estimate.getNumberOfValues(i));
+                    out.writeDouble(estimate.getWeight(i));
+                    for (int v = 0; v < estimate.getNumberOfValues(i); v++)
+                    {
+                        out.writeDouble(estimate.getUtility(i, v));
+                    }
+                }
+            }
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Estimate cache write failed " + file + ": " + e);
+        }
+    }
+
+    /**
+     * feeds everything written to it into a MessageDigest
+     */
+    private static class DigestSink extends OutputStream {
+        private final MessageDigest digest;
+
+        private DigestSink(MessageDigest digest)
+        {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b)
+        {
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            digest.update(b, off, len);
+        }
+    }
+}
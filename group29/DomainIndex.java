@@ -0,0 +1,190 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Dictionary of a discrete domain. Every issue and every value gets a dense ordinal (starting at 0),
+ * and every bid is identified by a mixed-radix long id whose digits are the value ordinals:
+ *
+ *      id = ordinal(issue 0) * stride(0) + ordinal(issue 1) * stride(1) + ... + ordinal(issue n-1)
+ *
+ * The first issue is the most significant digit, so ids follow the same order as the old cartesian product.
+ * Bids are kept as ids inside the agent and only turned into a genius Bid when we hand one out.
+ */
+public class DomainIndex {
+
+    private final Domain domain;
+    private final IssueDiscrete[] issues;
+    private final ValueDiscrete[][] values;
+    private final long[] strides;
+    private final long size;
+
+    private final HashMap<Integer, Integer> issueOrdinals;
+    private final HashMap<ValueDiscrete, Integer>[] valueOrdinals;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DomainIndex(Domain domain)
+    {
+        this.domain = domain;
+        List<Issue> issueList = domain.getIssues();
+        int issueCount = issueList.size();
+
+        this.issues = new IssueDiscrete[issueCount];
+        this.values = new ValueDiscrete[issueCount][];
+        this.strides = new long[issueCount];
+        this.issueOrdinals = new HashMap<Integer, Integer>();
+        this.valueOrdinals = new HashMap[issueCount];
+
+        for (int i = 0; i < issueCount; i++)
+        {
+            IssueDiscrete issueDiscrete = (IssueDiscrete) issueList.get(i);
+            issues[i] = issueDiscrete;
+            issueOrdinals.put(issueDiscrete.getNumber(), i);
+
+            List<ValueDiscrete> valueList = issueDiscrete.getValues();
+            values[i] = valueList.toArray(new ValueDiscrete[0]);
+            valueOrdinals[i] = new HashMap<ValueDiscrete, Integer>();
+            for (int v = 0; v < values[i].length; v++)
+            {
+                valueOrdinals[i].put(values[i][v], v);
+            }
+        }
+
+        //last issue is the least significant digit
+        long stride = 1;
+        try {
+            for (int i = issueCount - 1; i >= 0; i--)
+            {
+                strides[i] = stride;
+                stride = Math.multiplyExact(stride, (long) values[i].length);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Domain has more outcomes than fit in a long id", e);
+        }
+        this.size = stride;
+    }
+
+    public Domain getDomain()
+    {
+        return domain;
+    }
+
+    /**
+     * @return number of possible bids, ids run from 0 to size() - 1
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    public int getNumberOfIssues()
+    {
+        return issues.length;
+    }
+
+    public int getNumberOfValues(int issue)
+    {
+        return values[issue].length;
+    }
+
+    public IssueDiscrete getIssue(int issue)
+    {
+        return issues[issue];
+    }
+
+    public ValueDiscrete getValue(int issue, int value)
+    {
+        return values[issue][value];
+    }
+
+    public long getStride(int issue)
+    {
+        return strides[issue];
+    }
+
+    public int getIssueOrdinal(Issue issue)
+    {
+        return issueOrdinals.get(issue.getNumber());
+    }
+
+    public int getValueOrdinal(int issue, ValueDiscrete value)
+    {
+        return valueOrdinals[issue].get(value);
+    }
+
+    /**
+     * value ordinal of one issue inside an encoded bid
+     * @param bidId
+     * @param issue issue ordinal
+     * @return
+     */
+    public int getValueOrdinal(long bidId, int issue)
+    {
+        return (int) ((bidId / strides[issue]) % values[issue].length);
+    }
+
+    /**
+     * write all value ordinals of an encoded bid into ordinals, which must have getNumberOfIssues() slots
+     * @param bidId
+     * @param ordinals
+     */
+    public void decode(long bidId, int[] ordinals)
+    {
+        for (int i = issues.length - 1; i >= 0; i--)
+        {
+            int radix = values[i].length;
+            ordinals[i] = (int) (bidId % radix);
+            bidId /= radix;
+        }
+    }
+
+    /**
+     * @param ordinals value ordinal of every issue
+     * @return the id of the bid
+     */
+    public long encode(int[] ordinals)
+    {
+        long bidId = 0;
+        for (int i = 0; i < issues.length; i++)
+        {
+            bidId += ordinals[i] * strides[i];
+        }
+        return bidId;
+    }
+
+    public long encode(Bid bid)
+    {
+        long bidId = 0;
+        for (int i = 0; i < issues.length; i++)
+        {
+            ValueDiscrete value = (ValueDiscrete) bid.getValue(issues[i].getNumber());
+            bidId += valueOrdinals[i].get(value) * strides[i];
+        }
+        return bidId;
+    }
+
+    /**
+     * build the genius Bid of an id, only needed when the bid leaves the agent
+     * @param bidId
+     * @return
+     */
+    public Bid toBid(long bidId)
+    {
+        HashMap<Integer, Value> issue_num_option = new HashMap<Integer, Value>();
+        for (int i = issues.length - 1; i >= 0; i--)
+        {
+            int radix = values[i].length;
+            issue_num_option.put(issues[i].getNumber(), values[i][(int) (bidId % radix)]);
+            bidId /= radix;
+        }
+        return new Bid(domain, issue_num_option);
+    }
+}
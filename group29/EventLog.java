@@ -0,0 +1,309 @@
+package group29;
+
+import genius.core.timeline.TimeLineInfo;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per round events of the agent, recorded without touching stdout or building strings.
+ *
+ * Records go into a preallocated ring buffer of primitive columns, one writer (the negotiation thread)
+ * and one reader (a daemon thread) that drains them to a CSV file, or a binary file of fixed size records.
+ * The writer never blocks: when the reader falls behind by a full buffer the event is dropped and counted.
+ * close() drains everything left and closes the file.
+ *
+ * Every event has round, negotiation time, event type, bid id, predicted and real utility of the bid for us,
+ * its utility in the opponent model, and the agreement value and care of JonnyBlack at that moment.
+ * Columns that do not apply to an event are NaN, or -1 for the bid.
+ */
+public class EventLog implements Closeable {
+
+    public static final int OFFER = 0;
+    public static final int RECEIVED = 1;
+    public static final int ACCEPT = 2;
+    public static final int END = 3;
+    public static final int RECOMPUTE = 4;
+    private static final String[] TYPE_NAMES = {"offer", "received", "accept", "end", "recompute"};
+
+    //"G29L", and the format version of binary logs
+    private static final int MAGIC = 0x4732394C;
+    private static final int VERSION = 1;
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final long DRAIN_INTERVAL_NANOS = 20000000L;
+
+    private static final EventLog DISABLED = new EventLog();
+
+    private final int[] round;
+    private final double[] time;
+    private final int[] type;
+    private final long[] bid;
+    private final double[] predicted;
+    private final double[] real;
+    private final double[] opponent;
+    private final double[] agreementValue;
+    private final double[] care;
+
+    //head is written by the negotiation thread only, tail by the drain thread only
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long dropped;
+
+    private final TimeLineInfo timeline;
+    private final boolean binary;
+    private final Path file;
+    private final Writer csv;
+    private final DataOutputStream data;
+    private final Thread drainer;
+    private volatile boolean closed;
+    //reused by the drain thread for csv lines
+    private final StringBuilder line = new StringBuilder();
+
+    //disabled, no buffer, no file, no thread
+    private EventLog()
+    {
+        round = null;
+        time = null;
+        type = null;
+        bid = null;
+        predicted = null;
+        real = null;
+        opponent = null;
+        agreementValue = null;
+        care = null;
+        timeline = null;
+        file = null;
+        binary = false;
+        csv = null;
+        data = null;
+        drainer = null;
+        closed = true;
+    }
+
+    private EventLog(TimeLineInfo timeline, Path file, boolean binary) throws IOException
+    {
+        round = new int[CAPACITY];
+        time = new double[CAPACITY];
+        type = new int[CAPACITY];
+        bid = new long[CAPACITY];
+        predicted = new double[CAPACITY];
+        real = new double[CAPACITY];
+        opponent = new double[CAPACITY];
+        agreementValue = new double[CAPACITY];
+        care = new double[CAPACITY];
+        this.timeline = timeline;
+        this.file = file;
+        this.binary = binary;
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        if (binary)
+        {
+            data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            csv = null;
+        }
+        else
+        {
+            csv = new OutputStreamWriter(out, "UTF-8");
+            csv.write("round,time,event,bid,predicted,real,opponent,agreement_value,care\n");
+            data = null;
+        }
+        drainer = new Thread(this::drainLoop, "group29-event-log");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * with -Dgroup29.log=true, log in -Dgroup29.log.dir (default java.io.tmpdir/group29-log) as
+     * -Dgroup29.log.format csv or binary. Off by default, a tournament would get a file and a thread per session
+     * @param timeline clock of the events, may be null
+     * @return the log, or a disabled one if it is turned off or the file cannot be created
+     */
+    public static EventLog open(TimeLineInfo timeline)
+    {
+        if (!Boolean.parseBoolean(System.getProperty("group29.log", "false")))
+        {
+            return disabled();
+        }
+        boolean binary = System.getProperty("group29.log.format", "csv").equals("binary");
+        try {
+            Path directory = Paths.get(System.getProperty("group29.log.dir",
+                    Paths.get(System.getProperty("java.io.tmpdir"), "group29-log").toString()));
+            Files.createDirectories(directory);
+            Path file = Files.createTempFile(directory, "agent29-" + System.currentTimeMillis() + "-", binary ? ".bin" : ".csv");
+            return new EventLog(timeline, file, binary);
+        } catch (IOException e) {
+            System.out.println("Event log disabled: " + e);
+            return disabled();
+        }
+    }
+
+    /**
+     * @return log that records nothing
+     */
+    public static EventLog disabled()
+    {
+        return DISABLED;
+    }
+
+    /**
+     * record one event, never blocks, nothing is recorded after close()
+     * @param round
+     * @param type OFFER, RECEIVED, ACCEPT, END or RECOMPUTE
+     * @param bid DomainIndex id, -1 for none
+     * @param predicted
+     * @param real
+     * @param opponent
+     * @param agreementValue
+     * @param care
+     */
+    public void record(int round, int type, long bid, double predicted, double real, double opponent,
+                       double agreementValue, double care)
+    {
+        if (closed)
+        {
+            return;
+        }
+        long h = head.get();
+        if (h - tail.get() >= CAPACITY)
+        {
+            dropped++;
+            return;
+        }
+        int slot = (int) (h & MASK);
+        this.round[slot] = round;
+        this.time[slot] = timeline == null ? Double.NaN : timeline.getTime();
+        this.type[slot] = type;
+        this.bid[slot] = bid;
+        this.predicted[slot] = predicted;
+        this.real[slot] = real;
+        this.opponent[slot] = opponent;
+        this.agreementValue[slot] = agreementValue;
+        this.care[slot] = care;
+        //publishes the slot to the drain thread
+        head.lazySet(h + 1);
+    }
+
+    /**
+     * @return file the events go to, null when disabled
+     */
+    public Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return events lost because the buffer was full
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    private void drainLoop()
+    {
+        while (!closed)
+        {
+            LockSupport.parkNanos(DRAIN_INTERVAL_NANOS);
+            try {
+                synchronized (this)
+                {
+                    //close() drains the rest and closes the file under the same lock
+                    if (closed)
+                    {
+                        return;
+                    }
+                    drain();
+                }
+            } catch (IOException e) {
+                System.out.println("Event log stopped: " + e);
+                return;
+            }
+        }
+    }
+
+    private void drain() throws IOException
+    {
+        long h = head.get();
+        long t = tail.get();
+        if (t == h)
+        {
+            return;
+        }
+        for (; t < h; t++)
+        {
+            int slot = (int) (t & MASK);
+            if (binary)
+            {
+                data.writeInt(round[slot]);
+                data.writeDouble(time[slot]);
+                data.writeByte(type[slot]);
+                data.writeLong(bid[slot]);
+                data.writeDouble(predicted[slot]);
+                data.writeDouble(real[slot]);
+                data.writeDouble(opponent[slot]);
+                data.writeDouble(agreementValue[slot]);
+                data.writeDouble(care[slot]);
+            }
+            else
+            {
+                line.setLength(0);
+                line.append(round[slot]).append(',').append(time[slot]).append(',').append(TYPE_NAMES[type[slot]])
+                        .append(',').append(bid[slot]).append(',').append(predicted[slot]).append(',').append(real[slot])
+                        .append(',').append(opponent[slot]).append(',').append(agreementValue[slot]).append(',')
+                        .append(care[slot]).append('\n');
+                csv.append(line);
+            }
+            //frees the slot for the negotiation thread
+            tail.lazySet(t + 1);
+        }
+        if (binary)
+        {
+            data.flush();
+        }
+        else
+        {
+            csv.flush();
+        }
+    }
+
+    /**
+     * stop the drain thread, write what is left and close the file
+     */
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(drainer);
+        try {
+            synchronized (this)
+            {
+                drain();
+                if (binary)
+                {
+                    data.close();
+                }
+                else
+                {
+                    csv.close();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Event log close failed: " + e);
+        }
+        if (dropped > 0)
+        {
+            System.out.println("Event log dropped " + dropped + " events");
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package group29;
+
+import genius.core.uncertainty.BidRanking;
+import gurobi.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Max-epsilon margin estimation solved by Gurobi: maximize e such that every pairwise comparison
+ * of the ranking holds with margin e. Needs the gurobi native library and a license.
+ *
+ * Two modes:
+ *  BILINEAR    the original model with terms w_i * u_ij, non convex, solved by spatial branch and bound
+ *  LINEARIZED  the products v_ij = w_i * u_ij are the variables, with v_ij <= w_i, a plain LP
+ *              (same model as InteriorPointEstimator), weights recovered by PreferenceEstimate.fromProducts
+ *
+ * Variables are kept in arrays indexed by DomainIndex ordinals, added in bulk with a single model update.
+ */
+public class GurobiEstimator implements PreferenceEstimator {
+
+    public enum Mode { BILINEAR, LINEARIZED }
+
+    private final Mode mode;
+    //seconds, passed on as the Gurobi TimeLimit
+    private final double timeLimit;
+
+    public GurobiEstimator()
+    {
+        this(Mode.LINEARIZED);
+    }
+
+    public GurobiEstimator(Mode mode)
+    {
+        this(mode, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param mode
+     * @param timeLimit seconds, when they run out the best incumbent is used
+     */
+    public GurobiEstimator(Mode mode, double timeLimit)
+    {
+        this.mode = mode;
+        this.timeLimit = timeLimit;
+    }
+
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "GurobiEstimator(" + mode + ")";
+    }
+
+    @Override
+    public PreferenceEstimate estimate(DomainIndex domainIndex, BidRanking r) {
+        //disposed in finally, a solver error must not keep the environment and its license token
+        GRBEnv env = null;
+        GRBModel model = null;
+        try{
+            // Create empty environment, set options, and start
+            env = new GRBEnv(true);
+            env.set("logFile", "myAgent.log");
+            env.start();
+
+            // Create empty model
+            model = new GRBModel(env);
+            if (mode == Mode.BILINEAR)
+            {
+                model.set(GRB.IntParam.NonConvex, 2);
+            }
+            if (timeLimit < Double.POSITIVE_INFINITY)
+            {
+                model.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            }
+
+            /*
+            variables by ordinal:
+             w[issue]          weight of the issue, name: w_0, w_1 ...
+             u[issue][value]   evaluation of the value, name: u_0_0, u_0_1, u_1_0 ...
+                               (the product v_ij = w_i * u_ij in LINEARIZED mode)
+             e                 epsilon
+            all of them are added in one call and the model is updated once
+            */
+            int issueCount = domainIndex.getNumberOfIssues();
+            int variableCount = issueCount + 1;
+            for (int i = 0; i < issueCount; i++)
+            {
+                variableCount += domainIndex.getNumberOfValues(i);
+            }
+            double[] lower = new double[variableCount];
+            double[] upper = new double[variableCount];
+            double[] objective = new double[variableCount];
+            char[] types = new char[variableCount];
+            String[] names = new String[variableCount];
+            int n = 0;
+            for (int i = 0; i < issueCount; i++)
+            {
+                names[n++] = "w_" + i;
+                for (int v = 0; v < domainIndex.getNumberOfValues(i); v++)
+                {
+                    names[n++] = "u_" + i + "_" + v;
+                }
+            }
+            names[n] = "epsilon";
+            for (int k = 0; k < variableCount; k++)
+            {
+                upper[k] = 1.0;
+                types[k] = GRB.CONTINUOUS;
+            }
+            // Set objective: epsilon e
+            objective[variableCount - 1] = 1.0;
+
+            GRBVar[] vars = model.addVars(lower, upper, objective, types, names);
+            model.update();
+
+            GRBVar[] w = new GRBVar[issueCount];
+            GRBVar[][] u = new GRBVar[issueCount][];
+            n = 0;
+            for (int i = 0; i < issueCount; i++)
+            {
+                w[i] = vars[n++];
+                u[i] = new GRBVar[domainIndex.getNumberOfValues(i)];
+                for (int v = 0; v < u[i].length; v++)
+                {
+                    u[i][v] = vars[n++];
+                }
+            }
+            GRBVar e = vars[n];
+            model.set(GRB.IntAttr.ModelSense, GRB.MAXIMIZE);
+
+
+            /*
+            Set constraints with respect to the pairwise comparisons in bid ranking
+            example:
+            if we got two pairwise comparison bid2 >= bid1:
+            bid2 is offering value1 for issue1, value3 for issue2
+            bid1 is offering value2 for issue1, value2 for issue2
+            a constraint can be constructed accordingly:
+            w1*u11 + w2*u23 >= w1*u12 + w2*u22
+            For the purpose of optimization, e is added to get maximize the margin between the utility bid1 and bid2:
+            w1*u11 + w2*u23 - w1*u12 - w2*u22 - e >= 0
+            issues where both bids offer the same value cancel out and are left out of the constraint.
+            */
+
+            System.out.println("**************** Adding Constraints ****************");
+
+            /*
+            get all partial ordered bid comparisons
+            bid1 > bid2 returns -1
+            bid1 < bid2 returns  1
+            After checking the comparison result relationship  (-1,1,>=,<=), found out the comparison result is the other way around!
+            SparseComparisons sorts that out, and drops duplicate and implied comparisons
+            */
+            SparseComparisons comparisons = SparseComparisons.compile(domainIndex, r);
+            System.out.println("GurobiEstimator: " + comparisons);
+
+            if (mode == Mode.BILINEAR)
+            {
+                addBilinearComparisons(model, comparisons, w, u, e);
+            }
+            else
+            {
+                addLinearComparisons(model, comparisons, w, u, e);
+            }
+
+            //adding constraints that make sure the summation of weight of all the issues is exact 1
+            // w1 + w2 + ... + wn = 1
+            double[] ones = new double[issueCount];
+            Arrays.fill(ones, 1.0);
+            GRBLinExpr exprWeightSumTo1 = new GRBLinExpr();
+            exprWeightSumTo1.addTerms(ones, w);
+            model.addConstr(exprWeightSumTo1, GRB.EQUAL, 1.0, "weightSumTo1");
+
+            // Optimize model
+            model.optimize();
+
+            //stopped by the time limit, the incumbent if there is one
+            int status = model.get(GRB.IntAttr.Status);
+            if (model.get(GRB.IntAttr.SolCount) == 0)
+            {
+                throw new IllegalStateException("Gurobi found no solution, status " + status);
+            }
+            boolean optimal = status == GRB.Status.OPTIMAL;
+            //only the branch and bound of the bilinear model has a gap, an LP is either optimal or not
+            double gap = mode == Mode.BILINEAR ? model.get(GRB.DoubleAttr.MIPGap) : (optimal ? 0.0 : Double.NaN);
+
+            //read the result back by ordinal, one attribute query per issue
+            double[] weights = model.get(GRB.DoubleAttr.X, w);
+            double[][] utilities = new double[issueCount][];
+            for (int i = 0; i < issueCount; i++)
+            {
+                utilities[i] = model.get(GRB.DoubleAttr.X, u[i]);
+            }
+
+            if (mode == Mode.LINEARIZED)
+            {
+                return PreferenceEstimate.fromProducts(utilities).withStatus(optimal, gap);
+            }
+            return new PreferenceEstimate(weights, utilities, optimal, gap);
+
+        } catch (GRBException e) {
+            throw new IllegalStateException("Gurobi error code: " + e.getErrorCode() + ". " + e.getMessage(), e);
+        } finally {
+            dispose(model, env);
+        }
+    }
+
+    /**
+     * Dispose of model and environment, either may be null when creating it failed
+     * @param model
+     * @param env
+     */
+    private static void dispose(GRBModel model, GRBEnv env) {
+        try {
+            if (model != null)
+            {
+                model.dispose();
+            }
+        } catch (GRBException e) {
+            System.out.println("Gurobi model dispose failed: " + e.getMessage());
+        }
+        try {
+            if (env != null)
+            {
+                env.dispose();
+            }
+        } catch (GRBException e) {
+            System.out.println("Gurobi environment dispose failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * w_i * u_i,better - w_i * u_i,worse summed over the issues where the bids differ, minus e, >= 0.
+     * quadratic constraints have no batch call, they are queued by the lazy update and go in with optimize
+     */
+    private static void addBilinearComparisons(GRBModel model, SparseComparisons comparisons,
+                                               GRBVar[] w, GRBVar[][] u, GRBVar e) throws GRBException
+    {
+        double[] coefficients = new double[2 * w.length];
+        GRBVar[] weightTerms = new GRBVar[2 * w.length];
+        GRBVar[] valueTerms = new GRBVar[2 * w.length];
+        for (int k = 0; k < comparisons.size(); k++)
+        {
+            int size = 0;
+            for (int t = 0; t < comparisons.getLength(k); t++)
+            {
+                int i = comparisons.getIssue(k, t);
+                coefficients[size] = 1.0;
+                weightTerms[size] = w[i];
+                valueTerms[size++] = u[i][comparisons.getBetterValue(k, t)];
+                coefficients[size] = -1.0;
+                weightTerms[size] = w[i];
+                valueTerms[size++] = u[i][comparisons.getWorseValue(k, t)];
+            }
+            GRBQuadExpr expr = new GRBQuadExpr();
+            expr.addTerms(coefficients, weightTerms, valueTerms, 0, size);
+            expr.addTerm(-1.0, e);
+            model.addQConstr(expr, GRB.GREATER_EQUAL, 0.0, "c" + k);
+        }
+    }
+
+    /**
+     * v_i,better - v_i,worse summed over the issues where the bids differ, minus e, >= 0, and v_ij - w_i <= 0,
+     * all added with one addConstrs call
+     */
+    private static void addLinearComparisons(GRBModel model, SparseComparisons comparisons,
+                                             GRBVar[] w, GRBVar[][] u, GRBVar e) throws GRBException
+    {
+        List<GRBLinExpr> exprs = new ArrayList<GRBLinExpr>();
+        List<String> names = new ArrayList<String>();
+        List<Character> senses = new ArrayList<Character>();
+        for (int k = 0; k < comparisons.size(); k++)
+        {
+            GRBLinExpr expr = new GRBLinExpr();
+            for (int t = 0; t < comparisons.getLength(k); t++)
+            {
+                int i = comparisons.getIssue(k, t);
+                expr.addTerm(1.0, u[i][comparisons.getBetterValue(k, t)]);
+                expr.addTerm(-1.0, u[i][comparisons.getWorseValue(k, t)]);
+            }
+            expr.addTerm(-1.0, e);
+            exprs.add(expr);
+            senses.add(GRB.GREATER_EQUAL);
+            names.add("c" + k);
+        }
+        for (int i = 0; i < w.length; i++)
+        {
+            for (int v = 0; v < u[i].length; v++)
+            {
+                GRBLinExpr expr = new GRBLinExpr();
+                expr.addTerm(1.0, u[i][v]);
+                expr.addTerm(-1.0, w[i]);
+                exprs.add(expr);
+                senses.add(GRB.LESS_EQUAL);
+                names.add("v_" + i + "_" + v);
+            }
+        }
+
+        char[] sense = new char[senses.size()];
+        for (int k = 0; k < sense.length; k++)
+        {
+            sense[k] = senses.get(k);
+        }
+        model.addConstrs(exprs.toArray(new GRBLinExpr[0]), sense, new double[sense.length], names.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,152 @@
+package group29;
+
+import genius.core.uncertainty.BidRanking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pure Java max-epsilon margin estimation, no native solver needed.
+ *
+ * The bilinear products w_i * u_ij are replaced by variables v_ij, which turns the model into a linear program:
+ *
+ *      maximize e
+ *      v(better bid) >= v(worse bid) + e       for every comparison of the ranking
+ *      v_ij <= w_i,  w_1 + ... + w_n <= 1,  e <= 1,  everything >= 0
+ *
+ * Any solution (w, u) of the bilinear model gives one of this model with v_ij = w_i * u_ij, and back.
+ * It is solved with InteriorPointSolver, weights and values are recovered by PreferenceEstimate.fromProducts.
+ */
+public class InteriorPointEstimator implements PreferenceEstimator {
+
+    private static final int MAX_ITERATIONS = 200;
+
+    //seconds
+    private final double timeLimit;
+
+    public InteriorPointEstimator()
+    {
+        this(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param timeLimit seconds, when they run out the BordaEstimator estimate is returned
+     */
+    public InteriorPointEstimator(double timeLimit)
+    {
+        this.timeLimit = timeLimit;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "InteriorPointEstimator";
+    }
+
+    @Override
+    public PreferenceEstimate estimate(DomainIndex domainIndex, BidRanking bidRanking)
+    {
+        int issueCount = domainIndex.getNumberOfIssues();
+
+        //column layout: v_ij from offset[i], then w_i, then e
+        int[] offset = new int[issueCount];
+        int valueCount = 0;
+        for (int i = 0; i < issueCount; i++)
+        {
+            offset[i] = valueCount;
+            valueCount += domainIndex.getNumberOfValues(i);
+        }
+        int weightColumn = valueCount;
+        int epsilonColumn = valueCount + issueCount;
+        int columns = epsilonColumn + 1;
+
+        List<int[]> index = new ArrayList<int[]>();
+        List<double[]> values = new ArrayList<double[]>();
+        List<Double> rhs = new ArrayList<Double>();
+
+        //e + v(worse) - v(better) <= 0 over the issues where the bids differ
+        SparseComparisons comparisons = SparseComparisons.compile(domainIndex, bidRanking);
+        System.out.println("InteriorPointEstimator: " + comparisons);
+        for (int k = 0; k < comparisons.size(); k++)
+        {
+            int length = comparisons.getLength(k);
+            int[] rowIndex = new int[2 * length + 1];
+            double[] rowValues = new double[rowIndex.length];
+            for (int t = 0; t < length; t++)
+            {
+                int i = comparisons.getIssue(k, t);
+                rowIndex[2 * t] = offset[i] + comparisons.getWorseValue(k, t);
+                rowValues[2 * t] = 1.0;
+                rowIndex[2 * t + 1] = offset[i] + comparisons.getBetterValue(k, t);
+                rowValues[2 * t + 1] = -1.0;
+            }
+            rowIndex[2 * length] = epsilonColumn;
+            rowValues[2 * length] = 1.0;
+            index.add(rowIndex);
+            values.add(rowValues);
+            rhs.add(0.0);
+        }
+
+        //v_ij - w_i <= 0
+        for (int i = 0; i < issueCount; i++)
+        {
+            for (int v = 0; v < domainIndex.getNumberOfValues(i); v++)
+            {
+                index.add(new int[]{offset[i] + v, weightColumn + i});
+                values.add(new double[]{1.0, -1.0});
+                rhs.add(0.0);
+            }
+        }
+
+        //w_1 + ... + w_n <= 1
+        int[] weightIndex = new int[issueCount];
+        double[] weightValues = new double[issueCount];
+        for (int i = 0; i < issueCount; i++)
+        {
+            weightIndex[i] = weightColumn + i;
+            weightValues[i] = 1.0;
+        }
+        index.add(weightIndex);
+        values.add(weightValues);
+        rhs.add(1.0);
+
+        //e <= 1
+        index.add(new int[]{epsilonColumn});
+        values.add(new double[]{1.0});
+        rhs.add(1.0);
+
+        //-x <= 0
+        for (int j = 0; j < columns; j++)
+        {
+            index.add(new int[]{j});
+            values.add(new double[]{-1.0});
+            rhs.add(0.0);
+        }
+
+        double[] b = new double[rhs.size()];
+        for (int r = 0; r < b.length; r++)
+        {
+            b[r] = rhs.get(r);
+        }
+        double[] c = new double[columns];
+        c[epsilonColumn] = -1.0;
+
+        InteriorPointSolver solver = new InteriorPointSolver(index.toArray(new int[0][]), values.toArray(new double[0][]), b, c);
+        int status = solver.solve(MAX_ITERATIONS, timeLimit);
+        if (status == InteriorPointSolver.TIME_LIMIT)
+        {
+            //an interior point iterate is not feasible before it converges, it ranks worse than the heuristic
+            System.out.println("InteriorPointEstimator out of time after " + solver.getIterations() + " iterations, gap: " + solver.getGap());
+            return new BordaEstimator().estimate(domainIndex, bidRanking);
+        }
+
+        double[] x = solver.getSolution();
+        double[][] products = new double[issueCount][];
+        for (int i = 0; i < issueCount; i++)
+        {
+            products[i] = Arrays.copyOfRange(x, offset[i], offset[i] + domainIndex.getNumberOfValues(i));
+        }
+        return PreferenceEstimate.fromProducts(products).withStatus(status == InteriorPointSolver.OPTIMAL, solver.getGap());
+    }
+}
@@ -0,0 +1,349 @@
+package group29;
+
+/**
+ * Mehrotra predictor-corrector interior point method for  minimize c x  subject to  A x <= b.
+ *
+ * Rows of A are sparse (a few entries each), so every iteration builds the normal equations
+ * A^T D A in time proportional to the number of rows times the square of the row length, and solves
+ * them with a dense Cholesky of size columns x columns. Ranking problems have thousands of rows and
+ * a few dozen columns, and are extremely degenerate, which is where an interior point method is a
+ * lot more dependable than a simplex.
+ */
+public class InteriorPointSolver {
+
+    public static final int OPTIMAL = 0;
+    public static final int ITERATION_LIMIT = 1;
+    public static final int TIME_LIMIT = 2;
+
+    private static final double TOLERANCE = 1e-8;
+    private static final double STEP_FRACTION = 0.995;
+
+    private final int rows;
+    private final int columns;
+    //row r has the entries values[r][k] at columns index[r][k]
+    private final int[][] index;
+    private final double[][] values;
+    private final double[] b;
+    private final double[] c;
+
+    private double[] x;
+    private double[] s;
+    private double[] lambda;
+    private int iterations;
+    private double gap;
+
+    /**
+     * @param index column of every entry of every row
+     * @param values value of every entry of every row
+     * @param b right hand side
+     * @param c objective coefficients, minimized
+     */
+    public InteriorPointSolver(int[][] index, double[][] values, double[] b, double[] c)
+    {
+        this.rows = b.length;
+        this.columns = c.length;
+        this.index = index;
+        this.values = values;
+        this.b = b;
+        this.c = c;
+
+        this.x = new double[columns];
+        this.s = new double[rows];
+        this.lambda = new double[rows];
+        for (int r = 0; r < rows; r++)
+        {
+            s[r] = 1.0;
+            lambda[r] = 1.0;
+        }
+        this.gap = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * iterate until the residuals and the duality measure are below tolerance
+     * @param maxIterations
+     * @return OPTIMAL or ITERATION_LIMIT
+     */
+    public int solve(int maxIterations)
+    {
+        return solve(maxIterations, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * iterate until the residuals and the duality measure are below tolerance, or the time runs out,
+     * in which case the current iterate is the solution
+     * @param maxIterations
+     * @param timeLimit seconds
+     * @return OPTIMAL, ITERATION_LIMIT or TIME_LIMIT
+     */
+    public int solve(int maxIterations, double timeLimit)
+    {
+        long start = System.nanoTime();
+        double[] rp = new double[rows];
+        double[] rd = new double[columns];
+        double[] d = new double[rows];
+        double[] t = new double[rows];
+        double[] dx = new double[columns];
+        double[] ds = new double[rows];
+        double[] dl = new double[rows];
+        double[][] normal = new double[columns][columns];
+
+        while (iterations < maxIterations)
+        {
+            //residuals rp = A x + s - b, rd = A^T lambda + c, and mu = s.lambda / rows
+            multiply(x, rp);
+            double mu = 0;
+            double primalResidual = 0;
+            double lambdaNorm = 0;
+            for (int r = 0; r < rows; r++)
+            {
+                rp[r] += s[r] - b[r];
+                primalResidual = Math.max(primalResidual, Math.abs(rp[r]));
+                mu += s[r] * lambda[r];
+                lambdaNorm = Math.max(lambdaNorm, lambda[r]);
+            }
+            double complementarity = mu;
+            gap = complementarity / Math.max(Math.abs(getObjective()), TOLERANCE);
+            mu /= rows;
+            multiplyTransposed(lambda, rd);
+            double dualResidual = 0;
+            for (int j = 0; j < columns; j++)
+            {
+                rd[j] += c[j];
+                dualResidual = Math.max(dualResidual, Math.abs(rd[j]));
+            }
+            //residuals relative to the size of the multipliers, duality gap relative to the objective
+            if (primalResidual < TOLERANCE && dualResidual < TOLERANCE * (1 + lambdaNorm)
+                    && complementarity < TOLERANCE * Math.abs(getObjective()) + 1e-16)
+            {
+                return OPTIMAL;
+            }
+            if ((System.nanoTime() - start) / 1e9 >= timeLimit)
+            {
+                return TIME_LIMIT;
+            }
+
+            //normal equations A^T D A with D = lambda / s
+            for (int r = 0; r < rows; r++)
+            {
+                d[r] = lambda[r] / s[r];
+            }
+            buildNormal(d, normal);
+            factorize(normal);
+
+            //predictor, pure Newton step to complementarity 0
+            for (int r = 0; r < rows; r++)
+            {
+                t[r] = 0;
+            }
+            direction(normal, rp, rd, d, t, dx, ds, dl);
+            double primalStep = step(s, ds);
+            double dualStep = step(lambda, dl);
+            double muAffine = 0;
+            for (int r = 0; r < rows; r++)
+            {
+                muAffine += (s[r] + primalStep * ds[r]) * (lambda[r] + dualStep * dl[r]);
+            }
+            muAffine /= rows;
+            double sigma = Math.pow(muAffine / mu, 3);
+
+            //corrector, aim at sigma * mu and compensate the second order term of the predictor
+            for (int r = 0; r < rows; r++)
+            {
+                t[r] = sigma * mu - ds[r] * dl[r];
+            }
+            direction(normal, rp, rd, d, t, dx, ds, dl);
+            primalStep = Math.min(1.0, STEP_FRACTION * step(s, ds));
+            dualStep = Math.min(1.0, STEP_FRACTION * step(lambda, dl));
+
+            for (int j = 0; j < columns; j++)
+            {
+                x[j] += primalStep * dx[j];
+            }
+            for (int r = 0; r < rows; r++)
+            {
+                s[r] += primalStep * ds[r];
+                lambda[r] += dualStep * dl[r];
+            }
+            iterations += 1;
+        }
+        return ITERATION_LIMIT;
+    }
+
+    public double[] getSolution()
+    {
+        return x.clone();
+    }
+
+    /**
+     * @return duality gap s.lambda of the last checked iterate relative to the objective
+     */
+    public double getGap()
+    {
+        return gap;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public double getObjective()
+    {
+        double objective = 0;
+        for (int j = 0; j < columns; j++)
+        {
+            objective += c[j] * x[j];
+        }
+        return objective;
+    }
+
+    /*
+     * Newton direction for the complementarity target t:
+     *      (A^T D A) dx = -rd + A^T (lambda - t / s - D rp)
+     *      ds = -rp - A dx
+     *      dl = -lambda + t / s + D rp + D A dx
+     */
+    private void direction(double[][] factor, double[] rp, double[] rd, double[] d, double[] t, double[] dx, double[] ds, double[] dl)
+    {
+        double[] w = dl;
+        for (int r = 0; r < rows; r++)
+        {
+            w[r] = lambda[r] - t[r] / s[r] - d[r] * rp[r];
+        }
+        multiplyTransposed(w, dx);
+        for (int j = 0; j < columns; j++)
+        {
+            dx[j] -= rd[j];
+        }
+        backSubstitute(factor, dx);
+
+        multiply(dx, ds);
+        for (int r = 0; r < rows; r++)
+        {
+            double adx = ds[r];
+            ds[r] = -rp[r] - adx;
+            dl[r] = -lambda[r] + t[r] / s[r] + d[r] * rp[r] + d[r] * adx;
+        }
+    }
+
+    //largest step in [0, inf) that keeps v + step * dv >= 0
+    private static double step(double[] v, double[] dv)
+    {
+        double step = Double.POSITIVE_INFINITY;
+        for (int r = 0; r < v.length; r++)
+        {
+            if (dv[r] < 0)
+            {
+                step = Math.min(step, -v[r] / dv[r]);
+            }
+        }
+        return step;
+    }
+
+    private void multiply(double[] v, double[] result)
+    {
+        for (int r = 0; r < rows; r++)
+        {
+            double sum = 0;
+            for (int k = 0; k < index[r].length; k++)
+            {
+                sum += values[r][k] * v[index[r][k]];
+            }
+            result[r] = sum;
+        }
+    }
+
+    private void multiplyTransposed(double[] v, double[] result)
+    {
+        for (int j = 0; j < columns; j++)
+        {
+            result[j] = 0;
+        }
+        for (int r = 0; r < rows; r++)
+        {
+            for (int k = 0; k < index[r].length; k++)
+            {
+                result[index[r][k]] += values[r][k] * v[r];
+            }
+        }
+    }
+
+    private void buildNormal(double[] d, double[][] normal)
+    {
+        for (int j = 0; j < columns; j++)
+        {
+            for (int k = 0; k < columns; k++)
+            {
+                normal[j][k] = 0;
+            }
+        }
+        for (int r = 0; r < rows; r++)
+        {
+            int[] rowIndex = index[r];
+            double[] rowValues = values[r];
+            for (int k1 = 0; k1 < rowIndex.length; k1++)
+            {
+                double scaled = d[r] * rowValues[k1];
+                double[] normalRow = normal[rowIndex[k1]];
+                for (int k2 = 0; k2 < rowIndex.length; k2++)
+                {
+                    normalRow[rowIndex[k2]] += scaled * rowValues[k2];
+                }
+            }
+        }
+    }
+
+    //in place Cholesky, the lower triangle holds L afterwards; a tiny diagonal shift keeps it positive definite
+    private void factorize(double[][] a)
+    {
+        double shift = 0;
+        for (int j = 0; j < columns; j++)
+        {
+            shift = Math.max(shift, a[j][j]);
+        }
+        shift = Math.max(shift * 1e-14, 1e-300);
+
+        for (int j = 0; j < columns; j++)
+        {
+            double diagonal = a[j][j] + shift;
+            for (int k = 0; k < j; k++)
+            {
+                diagonal -= a[j][k] * a[j][k];
+            }
+            diagonal = Math.sqrt(Math.max(diagonal, shift));
+            a[j][j] = diagonal;
+            for (int i = j + 1; i < columns; i++)
+            {
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++)
+                {
+                    sum -= a[i][k] * a[j][k];
+                }
+                a[i][j] = sum / diagonal;
+            }
+        }
+    }
+
+    //solve L L^T v = v in place
+    private void backSubstitute(double[][] l, double[] v)
+    {
+        for (int i = 0; i < columns; i++)
+        {
+            double sum = v[i];
+            for (int k = 0; k < i; k++)
+            {
+                sum -= l[i][k] * v[k];
+            }
+            v[i] = sum / l[i][i];
+        }
+        for (int i = columns - 1; i >= 0; i--)
+        {
+            double sum = v[i];
+            for (int k = i + 1; k < columns; k++)
+            {
+                sum -= l[k][i] * v[k];
+            }
+            v[i] = sum / l[i][i];
+        }
+    }
+}
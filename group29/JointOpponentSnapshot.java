@@ -0,0 +1,157 @@
+package group29;
+
+/**
+ * The snapshots of all opponents of a multilateral session scored together: the utility of a bid is the lowest
+ * predicted utility over the opponents, so a bid that reaches a threshold reaches it for every one of them.
+ *
+ * The weighted values of all opponents are stacked per issue, table[issue][value * parties + party], so scoring
+ * a bid against every opponent decodes each value ordinal once and reads the values of all opponents next to
+ * each other. The memory is one value table per opponent, nothing per bid. Without opponents every bid scores 0,
+ * like a model that has not seen a bid.
+ */
+public final class JointOpponentSnapshot implements OpponentScores {
+
+    private final DomainIndex domainIndex;
+    private final long version;
+    private final int parties;
+    private final float[][] table;
+    //sums per opponent while a bid is scored, one array per scoring thread
+    private final ThreadLocal<float[]> scratch;
+
+    /**
+     * @param domainIndex
+     * @param version
+     * @param snapshots one per opponent
+     */
+    JointOpponentSnapshot(DomainIndex domainIndex, long version, OpponentSnapshot[] snapshots)
+    {
+        this.domainIndex = domainIndex;
+        this.version = version;
+        this.parties = snapshots.length;
+        int issueCount = domainIndex.getNumberOfIssues();
+        this.table = new float[issueCount][];
+        for (int i = 0; i < issueCount; i++)
+        {
+            int valueCount = domainIndex.getNumberOfValues(i);
+            float[] row = new float[valueCount * parties];
+            for (int v = 0; v < valueCount; v++)
+            {
+                for (int p = 0; p < parties; p++)
+                {
+                    //the same float product as OpponentSnapshot.getUtility, so one opponent scores identically
+                    row[v * parties + p] = snapshots[p].getValue(i, v) * snapshots[p].getWeight(i);
+                }
+            }
+            table[i] = row;
+        }
+        int size = parties;
+        this.scratch = ThreadLocal.withInitial(() -> new float[size]);
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    DomainIndex getDomainIndex()
+    {
+        return domainIndex;
+    }
+
+    /**
+     * @return number of opponents
+     */
+    int getParties()
+    {
+        return parties;
+    }
+
+    /**
+     * @param issue ordinal
+     * @param value ordinal
+     * @param party
+     * @return weighted value of the option for the party, what it adds to the party's utility of a bid
+     */
+    float getContribution(int issue, int value, int party)
+    {
+        return table[issue][value * parties + party];
+    }
+
+    /**
+     * @param ordinals value ordinal of every issue
+     * @return lowest predicted utility over the opponents
+     */
+    @Override
+    public float getUtility(int[] ordinals)
+    {
+        if (parties == 1)
+        {
+            float utility = 0;
+            for (int i = 0; i < table.length; i++)
+            {
+                utility += table[i][ordinals[i]];
+            }
+            return utility;
+        }
+        float[] utilities = scratch.get();
+        for (int i = 0; i < table.length; i++)
+        {
+            add(table[i], ordinals[i] * parties, utilities, i == 0);
+        }
+        return lowest(utilities);
+    }
+
+    /**
+     * @param bidId DomainIndex id
+     * @return lowest predicted utility over the opponents
+     */
+    @Override
+    public float getUtility(long bidId)
+    {
+        if (parties == 1)
+        {
+            float utility = 0;
+            for (int i = 0; i < table.length; i++)
+            {
+                utility += table[i][domainIndex.getValueOrdinal(bidId, i)];
+            }
+            return utility;
+        }
+        float[] utilities = scratch.get();
+        for (int i = 0; i < table.length; i++)
+        {
+            add(table[i], domainIndex.getValueOrdinal(bidId, i) * parties, utilities, i == 0);
+        }
+        return lowest(utilities);
+    }
+
+    /**
+     * add the weighted values of one issue to the utility of every opponent
+     * @param row table row of the issue
+     * @param base slot of the first opponent for the value of the bid
+     * @param utilities one per opponent
+     * @param first true for the first issue, utilities are overwritten
+     */
+    private void add(float[] row, int base, float[] utilities, boolean first)
+    {
+        for (int p = 0; p < parties; p++)
+        {
+            utilities[p] = first ? row[base + p] : utilities[p] + row[base + p];
+        }
+    }
+
+    private float lowest(float[] utilities)
+    {
+        if (parties == 0 || table.length == 0)
+        {
+            return 0;
+        }
+        float lowest = utilities[0];
+        for (int p = 1; p < parties; p++)
+        {
+            lowest = Math.min(lowest, utilities[p]);
+        }
+        return lowest;
+    }
+}
@@ -1,34 +1,73 @@
 package group29;
 
-import agents.anac.y2016.caduceus.agents.Caduceus.Opponent;
-import genius.core.Bid;
-import genius.core.Domain;
-import genius.core.issue.Issue;
-import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Value;
-import genius.core.issue.ValueDiscrete;
+import genius.core.AgentID;
 import genius.core.utility.AdditiveUtilitySpace;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class JonnyBlack{
-    private AdditiveUtilitySpace additiveUtilitySpace;
-    private OpponentModel opponentModel;
+    private UtilityTable utilityTable;
+    private ThresholdBidSearch bidSearch;
+    //null when the domain is too large to index, the feasible bids are searched at every recompute then
+    private OwnUtilityIndex ownIndex;
+    private DomainIndex domainIndex;
+    //every opponent of the session, offers are scored against all of them at once
+    private OpponentRegistry opponents;
     private double AV;
     private double reluctance;
     private double care;
 
     private int lastBidIndex;
     private int round;
-    private ArrayList<Bid> rank;
-    private ArrayList<Bid> allBid;
-    private ArrayList<Bid> feasibleBid;
-    private ArrayList<Integer> feasibleBidIndex;
-
-    public JonnyBlack(AdditiveUtilitySpace userUtilitySpace, OpponentModel opponentModel){
-        this.additiveUtilitySpace = userUtilitySpace;
-        this.opponentModel = opponentModel;
+    //bids are stored as DomainIndex ids, see DomainIndex.toBid
+    //the first rankSize bids of rank are the feasible bids from high to low utility, rankUtility their utility
+    private long[] rank;
+    private double[] rankUtility;
+    private int rankSize;
+    //opponent utility of the ranked bids that reach AV, built from the opponent model at the recompute of every
+    //10 rounds (or after the rank changed) and queried until the next one, so the offers in between are chosen
+    //against that snapshot of the opponent model. Offered bids are taken out when the query runs into them
+    private final OfferIndex offerIndex = new OfferIndex();
+    private boolean offerIndexStale = true;
+    //end of the positions in the offer index and their opponent utility
+    private int offerEnd;
+    private float[] rankOpponentUtility = new float[0];
+    //every bid of the offer index that meets care has been offered, they are offered again in order until the next build
+    private boolean repeating;
+    //opponent utility of every bid, indexed by bid id, computed from the opponent scores of opponentUtilityVersion,
+    //only for domains that fit an OwnUtilityIndex
+    private float[] opponentUtility;
+    private long opponentUtilityVersion = -1;
+    //bids we have offered, they are skipped when the next offer is chosen
+    private BidSet offered = new BidSet();
+    private EventLog eventLog = EventLog.disabled();
+    private PhaseLatencies latencies = new PhaseLatencies();
+
+    /**
+     * bilateral session with one opponent
+     * @param userUtilitySpace
+     * @param domainIndex
+     * @param opponentModel
+     */
+    public JonnyBlack(AdditiveUtilitySpace userUtilitySpace, DomainIndex domainIndex, OpponentModel opponentModel){
+        this(userUtilitySpace, domainIndex, single(domainIndex, opponentModel));
+    }
+
+    public JonnyBlack(AdditiveUtilitySpace userUtilitySpace, DomainIndex domainIndex, OpponentRegistry opponents){
+        this(new OwnUtilityModel(userUtilitySpace, domainIndex), domainIndex, opponents);
+    }
+
+    /**
+     * @param ownModel our utility space with its tables, built beforehand
+     * @param domainIndex
+     * @param opponents
+     */
+    public JonnyBlack(OwnUtilityModel ownModel, DomainIndex domainIndex, OpponentRegistry opponents){
+        this.utilityTable = ownModel.getUtilityTable();
+        this.bidSearch = ownModel.getBidSearch();
+        this.ownIndex = ownModel.getOwnIndex();
+        this.domainIndex = domainIndex;
+        this.opponents = opponents;
         AV = 0.85;
         reluctance = 1;
         care = 0.4;
@@ -37,274 +76,214 @@ public class JonnyBlack{
         round = 0;
 
 
-        ArrayList<Bid> allBid = generateAllBid(additiveUtilitySpace);
-        this.allBid = allBid;
-
-        ArrayList<Integer> feasibleBidIndex = getFeasibleBidIndex(allBid);
-        this.feasibleBidIndex = feasibleBidIndex;
+        rankFeasibleBids();
 
-        this.feasibleBid = getFeasibleBid(allBid);
+    }
 
-        rank = ranking(feasibleBid);
+    /**
+     * switch to another estimate of our utility space, the tables and the feasible bids are rebuilt
+     * and offering starts again from the top of the new rank
+     * @param userUtilitySpace
+     */
+    public void updateUtilitySpace(AdditiveUtilitySpace userUtilitySpace){
+        updateUtilitySpace(new OwnUtilityModel(userUtilitySpace, domainIndex));
+    }
 
+    /**
+     * switch to another estimate of our utility space whose tables are built already, only the feasible bids
+     * are ranked again and offering starts again from the top of the new rank
+     * @param ownModel
+     */
+    public void updateUtilitySpace(OwnUtilityModel ownModel){
+        this.utilityTable = ownModel.getUtilityTable();
+        this.bidSearch = ownModel.getBidSearch();
+        this.ownIndex = ownModel.getOwnIndex();
+        lastBidIndex = 0;
+        rankFeasibleBids();
     }
 
-    public double getOpponentUtility(Bid bid){
-        return opponentModel.getUtility(bid);
+    private static OpponentRegistry single(DomainIndex domainIndex, OpponentModel opponentModel){
+        OpponentRegistry opponents = new OpponentRegistry(domainIndex);
+        opponents.put(new AgentID("opponent"), opponentModel);
+        return opponents;
     }
 
     /**
-     * return all the possible bid in the utility space
-     * @param additiveUtilitySpace
-     * @return
+     * @param bid
+     * @return lowest predicted utility of the bid over the opponents
      */
-    private ArrayList<Bid> generateAllBid(AdditiveUtilitySpace additiveUtilitySpace) {
-        ArrayList<Bid> all_bids = new ArrayList<Bid>();
-        ArrayList<ArrayList<ValueDiscrete>> option_lists = new ArrayList<ArrayList<ValueDiscrete>>();
-        List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-        List<Integer> issue_nums = new ArrayList<Integer>();
+    public double getOpponentUtility(long bid){
+        return opponents.getScores().getUtility(bid);
+    }
 
-        for (Issue issue : issues)
-        {
-            issue_nums.add(issue.getNumber());
-            IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-            ArrayList<ValueDiscrete> value_list = new ArrayList<ValueDiscrete>();
-            for (ValueDiscrete valueDiscrete : issueDiscrete.getValues())
-            {
-                value_list.add(valueDiscrete);
-            }
-            option_lists.add(value_list);
-        }
-        List<List<ValueDiscrete>> cartesian_combinations = cartesianCombinations(option_lists);
+    /**
+     * record the recomputes of every 10 rounds in this log
+     * @param eventLog
+     */
+    public void setEventLog(EventLog eventLog){
+        this.eventLog = eventLog;
+    }
 
-        Domain domain = additiveUtilitySpace.getDomain();
-        for (List<ValueDiscrete> options : cartesian_combinations)
-        {
-            HashMap<Integer, Value> issue_num_option = new HashMap<Integer, Value>();
-            int index = 1;
-            for(ValueDiscrete p : options)
-            {
-                issue_num_option.put(index, p);
-                index += 1;
-            }
-            Bid bid = new Bid(domain, issue_num_option);
-            all_bids.add(bid);
-        }
-        return all_bids;
+    /**
+     * record the latency of the recomputes of every 10 rounds in these histograms
+     * @param latencies
+     */
+    public void setLatencies(PhaseLatencies latencies){
+        this.latencies = latencies;
     }
 
     /**
-     * get bid that not lower than our minimum target
-     * @param bids
+     * our estimated utility of a bid id
+     * @param bid
      * @return
      */
-    private ArrayList<Bid> getFeasibleBid(ArrayList<Bid> bids) {
-
-        ArrayList<Bid> feasible_bids = new ArrayList<Bid>();
-        for(Bid bid : bids)
-        {
-            double utility = additiveUtilitySpace.getUtility(bid);
-            if(utility >= AV)
-            {
-                feasible_bids.add(bid);
-            }
-        }
-        return feasible_bids;
+    public double getUtility(long bid){
+        return utilityTable.getUtility(bid);
     }
 
     /**
-     * Generating feasible bids set that is above the reserve value of my agent
-     * @param bids all bids you want to find that is higher than the expectation
-     * @return Feasible Bid
+     * get bid that not lower than our minimum target and rank them from high to low utility.
+     * With an OwnUtilityIndex this is a binary search in the bids sorted at init, otherwise only the part of
+     * the outcome space that can reach AV is searched, see ThresholdBidSearch.
      */
-    private ArrayList<Integer> getFeasibleBidIndex(ArrayList<Bid> bids)
-    {
-        ArrayList<Integer> indexes = new ArrayList<Integer>();
-        ArrayList<Bid> feasible_bids = new ArrayList<Bid>();
-        int index = 0;
-        for(Bid bid : bids)
+    void rankFeasibleBids() {
+        if(ownIndex != null)
         {
-            double utility = additiveUtilitySpace.getUtility(bid);
-            if(utility >= AV)
-            {
-                feasible_bids.add(bid);
-                indexes.add(index);
-            }
-            index += 1;
+            rank = ownIndex.getBids();
+            rankUtility = ownIndex.getUtilities();
+            rankSize = ownIndex.countAtLeast(AV);
         }
-        return indexes;
+        else
+        {
+            ScoredBids feasible_bids = bidSearch.atLeast(AV);
+            rank = feasible_bids.toBidArray();
+            rankUtility = feasible_bids.toUtilityArray();
+            rankSize = rank.length;
+        }
+        offerIndexStale = true;
     }
 
     /**
-     * select N best element in array according to the opponent model we have, return index of N best
-     * @param bids
+     * select N best element in the outcome space according to the opponent model we have, return id of N best.
+     * When the domain fits an OwnUtilityIndex the scores of all bids are kept and the outcome space is only scored
+     * again when the opponent model has been updated since the last call, larger domains are searched by branch and
+     * bound over the per-issue values of the opponents, see TopNSelector.select(JointOpponentSnapshot, int).
      * @param n
      */
-    private ArrayList<Integer> getOpponentBestNBidIndex(ArrayList<Bid> bids, int n, OpponentModel opponentModel) {
-        //create sort able array with index and value pair
-        IndexValuePair[] pairs = new IndexValuePair[bids.size()];
-        for (int i = 0; i < bids.size(); i++) {
-            pairs[i] = new IndexValuePair(i, bids.get(i));
+    long[] getOpponentBestNBidIndex(int n) {
+        JointOpponentSnapshot opponentScores = opponents.getScores();
+        if(!OwnUtilityIndex.fits(domainIndex))
+        {
+            return TopNSelector.select(opponentScores, n);
         }
 
-        //sort
-        Arrays.sort(pairs, new Comparator<IndexValuePair>() {
-            public int compare(IndexValuePair o1, IndexValuePair o2) {
-                return Float.compare(opponentModel.getUtility(o1.bid), opponentModel.getUtility(o2.bid));
-            }
-        });
-
-        //extract the indices
-        ArrayList<Integer> result = new ArrayList<Integer>();
-        for (int i = 0; i < n; i++) {
-            result.add(pairs[i].index);
+        if(opponentUtility == null)
+        {
+            opponentUtility = new float[(int) domainIndex.size()];
         }
-        return result;
-    }
-
-    /**
-     * rank all the bid with respect to agent utility space
-     * @param bids
-     * @return
-     */
-    private ArrayList<Bid> ranking(ArrayList<Bid> bids) {
-        //create sort able array with index and value pair
-        IndexValuePair[] pairs = new IndexValuePair[bids.size()];
-        for (int i = 0; i < bids.size(); i++) {
-            pairs[i] = new IndexValuePair(i, bids.get(i));
+        float[] scores = opponentUtility;
+        if(opponentScores.getVersion() != opponentUtilityVersion)
+        {
+            Parallelism.forEachRange(scores.length, 1 << 16, (from, to) -> {
+                new BidEnumerator(domainIndex, from, to).forEachRemaining((long bid, int[] ordinals) -> {
+                    scores[(int) bid] = opponentScores.getUtility(ordinals);
+                });
+            });
+            opponentUtilityVersion = opponentScores.getVersion();
         }
 
-        //sort
-        Arrays.sort(pairs, new Comparator<IndexValuePair>() {
-            public int compare(IndexValuePair o1, IndexValuePair o2) {
-                return Double.compare(additiveUtilitySpace.getUtility(o1.bid), additiveUtilitySpace.getUtility(o2.bid));
-            }
-        });
-
-        //extract the indices
-        ArrayList<Bid> result = new ArrayList<Bid>();
-        for (int i = 0; i < bids.size(); i++) {
-            result.add(feasibleBid.get(pairs[i].index));
+        int[] best = TopNSelector.select(scores, n, Parallelism.isEnabled());
+        long[] result = new long[best.length];
+        for (int i = 0; i < best.length; i++) {
+            result[i] = best[i];
         }
-        Collections.reverse(result);
         return result;
     }
 
     /**
-     * return the bid index in the bid list which has the largest utility
-     * @param bidsIndex
+     * return the bid in the bid list which has the largest utility
+     * @param bids
      * @return
      */
-    private int getBestBidIndex(ArrayList<Integer> bidsIndex) {
-        Iterator<Integer> it = bidsIndex.iterator();
+    private long getBestBid(long[] bids) {
         double maxUtility = 0.0;
-        int maxBidIndex = bidsIndex.get(0);
-        while(it.hasNext())
+        long maxBid = bids[0];
+        for(long bid : bids)
         {
-            int bidIndex = it.next();
-            double utility = additiveUtilitySpace.getUtility(allBid.get(bidIndex));
+            double utility = getUtility(bid);
             if(utility > maxUtility)
             {
-                maxBidIndex = bidIndex;
+                maxBid = bid;
                 maxUtility = utility;
             }
         }
-        return maxBidIndex;
+        return maxBid;
     }
 
     /**
-     * Generate Cartesian product of List, for generating all the possible bids
-     * @param <T>
-     * @param lists
-     * @return
+     * @param bids
+     * @return the bids with utility not lower than AV, in the same order
      */
-    public static <T> List<List<T>> cartesianCombinations(ArrayList<ArrayList<T>> lists) {
-        List<List<T>> currentCombinations = Arrays.asList(Arrays.asList());
-        for (ArrayList<T> list : lists) {
-            currentCombinations = appendElements(currentCombinations, list);
-        }
-        return currentCombinations;
-    }
-
-    public static <T> List<List<T>> appendElements(List<List<T>> combinations, List<T> extraElements) {
-        return combinations.stream().flatMap(oldCombination
-                -> extraElements.stream().map(extra -> {
-            List<T> combinationWithExtra = new ArrayList<>(oldCombination);
-            combinationWithExtra.add(extra);
-            return combinationWithExtra;
-        }))
-                .collect(Collectors.toList());
-    }
-
-    public static ArrayList<Integer> intersection(ArrayList<Integer> l1, ArrayList<Integer> l2) {
-        HashSet<Integer> set = new HashSet<>();
-        set.addAll(l1);
-        set.retainAll(l2);
-
-        ArrayList<Integer> result = new ArrayList<>(set);
-        return result;
-    }
-
-    public class IndexValuePair {
-        private int index;
-        private Bid bid;
-
-        public IndexValuePair(int index, Bid bid) {
-            this.index = index;
-            this.bid = bid;
+    private long[] feasibleBids(long[] bids) {
+        long[] result = new long[bids.length];
+        int size = 0;
+        for (long bid : bids) {
+            if (getUtility(bid) >= AV) {
+                result[size++] = bid;
+            }
         }
+        return Arrays.copyOf(result, size);
     }
 
-    public Bid makeAnOffer(){
+    /**
+     * @return id of the bid to offer, turn it into a Bid with DomainIndex.toBid
+     */
+    public long makeAnOffer(){
         /***************** update opponent model every 10 round *****************/
         if(round < 10)
         {
-            Bid bid = rank.get(lastBidIndex);
+            long bid = rank[lastBidIndex];
             round += 1;
             lastBidIndex += 1;
+            offered.add(bid);
             return bid;
         }
 
         //Every 10 round recalculate all properties
         else if(round%10 == 0)
         {
+            long start = System.nanoTime();
             //Update feasible list and rank(ordered feasible list), because we have calculated a new AV
-            feasibleBidIndex = getFeasibleBidIndex(allBid);
-            feasibleBid = getFeasibleBid(allBid);
-            rank = ranking(feasibleBid);
+            rankFeasibleBids();
 
             //Initialize the lists for store common bids and opponent best bids
-            ArrayList<Integer> commonBidsIndex;
+            long[] commonBids;
 
             //increase care for opponent and decrease the reluctance parameter for my agent
             care = care * 1.04;
             reluctance = reluctance * 0.985;
 
-            //get opponent N best bids and store at a list
-            opponentModel.update();
-            ArrayList<Integer> OppoBestNBidsIndex = getOpponentBestNBidIndex(allBid, 200, opponentModel);
-            System.out.println("opponent properties :" + "\n" + opponentModel.getIssueWeightStr());
-
+            //get opponent N best bids and store at a list, the opponent model is refreshed on every received bid
+            long[] OppoBestNBids = getOpponentBestNBidIndex(200);
 
-            //intersection my feasible bids with all bid lists from opponents, get the common bid list
-            commonBidsIndex = intersection(feasibleBidIndex , OppoBestNBidsIndex);
 
-            System.out.println("round " + round + " common bids amount: " + commonBidsIndex.size());
+            //intersection my feasible bids with all bid lists from opponents, get the common bid list,
+            //a bid is feasible when its utility reaches AV so no set of the feasible bids is needed
+            commonBids = feasibleBids(OppoBestNBids);
 
 
             //Find the best bid in common bid list and re-calculate the AV
-            int bestCommonBidIndex = getBestBidIndex(feasibleBidIndex); //best bid will be the overall best bid in all possible bid in default
+            long bestCommonBid = rank[0]; //best bid will be the overall best bid in all possible bid in default, rank is sorted
             //if there is common bid, find best bid in common bid
-            System.out.println("Common Bid Amount: " + commonBidsIndex.size());
-            if(commonBidsIndex.size() != 0)
+            if(commonBids.length != 0)
             {
-                bestCommonBidIndex = getBestBidIndex(commonBidsIndex);
+                bestCommonBid = getBestBid(commonBids);
             }
 
-            System.out.println("round " + round + " AV: " + AV);
-            System.out.println("round " + round + " Care: " + care);
-
-            AV = additiveUtilitySpace.getUtility(allBid.get(bestCommonBidIndex)) * reluctance;
+            AV = getUtility(bestCommonBid) * reluctance;
+            eventLog.record(round, EventLog.RECOMPUTE, bestCommonBid, getUtility(bestCommonBid), Double.NaN,
+                    getOpponentUtility(bestCommonBid), AV, care);
+            latencies.record(PhaseLatencies.Phase.RECOMPUTE, start);
 
         }
         round += 1;
@@ -312,31 +291,167 @@ public class JonnyBlack{
 
         /***************** Making an offer to opponent *****************/
 
-        // From high to low in rank, find the bid iterative that satisfy AV and Care
+        // From high to low in rank, find the first bid not offered yet that satisfy AV and Care
         // if the bid is not accepted, move to the next bid in the rank
-        for(int i = lastBidIndex; i < rank.size()-1; i++)
+        // rank is sorted by our utility so AV cuts it at offerEnd, the offer index finds the next bid that meets care
+        if(offerIndexStale)
+        {
+            buildOfferIndex(opponents.getScores());
+        }
+        int i = -1;
+        if(!repeating)
         {
-            if((additiveUtilitySpace.getUtility(rank.get(i)) >= AV) && (opponentModel.getUtility(rank.get(i)) >= care))
+            i = firstNotOffered();
+            // every such bid has been offered already, offer them again in order until the next recompute
+            if(i < 0)
             {
-//				System.out.println(opponentModelMap.get(agentToFavour).getUtility(rank.get(i)));
-//				System.out.println(opponentModelMap.get(agentToFavour).getOptionValueStr());
-                lastBidIndex = i+1;
-
-                return rank.get(i);
+                repeating = true;
+                fillOfferIndex();
             }
         }
+        if(i < 0)
+        {
+            i = offerIndex.firstAtLeast(lastBidIndex, offerEnd, care);
+        }
+        if(i >= 0)
+        {
+            lastBidIndex = i+1;
+            offered.add(rank[i]);
+
+            return rank[i];
+        }
 
         lastBidIndex = 0;
+        offered.add(rank[0]);
+
+        return rank[0];
+    }
+
+    /**
+     * @return first position from lastBidIndex on in the offer index that reaches care and has not been offered,
+     * -1 if there is none
+     */
+    private int firstNotOffered(){
+        int i = offerIndex.firstAtLeast(lastBidIndex, offerEnd, care);
+        while(i >= 0 && offered.contains(rank[i]))
+        {
+            offerIndex.remove(i);
+            i = offerIndex.firstAtLeast(lastBidIndex, offerEnd, care);
+        }
+        return i;
+    }
+
+    /**
+     * index the ranked bids that reach AV by their opponent utility under opponentScores, read from the scores of
+     * the recompute when they are for the same version
+     * @param opponentScores
+     */
+    private void buildOfferIndex(OpponentScores opponentScores){
+        offerEnd = Math.max(0, Math.min(OwnUtilityIndex.countAtLeast(rankUtility, rankSize, AV), rankSize-1));
+        boolean cached = opponentUtility != null && opponentScores.getVersion() == opponentUtilityVersion;
+        if(rankOpponentUtility.length < offerEnd)
+        {
+            rankOpponentUtility = new float[offerEnd];
+        }
+        for(int i = 0; i < offerEnd; i++)
+        {
+            rankOpponentUtility[i] = cached ? opponentUtility[(int) rank[i]] : opponentScores.getUtility(rank[i]);
+        }
+        fillOfferIndex();
+        repeating = false;
+        offerIndexStale = false;
+    }
+
+    /**
+     * put every position back into the offer index, offered or not
+     */
+    private void fillOfferIndex(){
+        offerIndex.reset(offerEnd);
+        for(int i = 0; i < offerEnd; i++)
+        {
+            offerIndex.set(i, rankOpponentUtility[i]);
+        }
+        offerIndex.build();
+    }
+
+    /**
+     * @return the negotiation state that makeAnOffer changes, to play the same round again with restoreState
+     */
+    OfferState saveState(){
+        return new OfferState(this);
+    }
+
+    /**
+     * go back to a state of saveState, the opponent model is not part of it. The feasible bids are ranked again
+     * if a recompute has changed AV since
+     * @param state
+     */
+    void restoreState(OfferState state){
+        boolean recomputed = AV != state.AV;
+        round = state.round;
+        AV = state.AV;
+        care = state.care;
+        reluctance = state.reluctance;
+        lastBidIndex = state.lastBidIndex;
+        repeating = state.repeating;
+        offered = state.offered.copy();
+        if(recomputed)
+        {
+            rankFeasibleBids();
+        }
+    }
 
-        return rank.get(0);
+    /**
+     * round, AV, care, reluctance, position in the rank and the offered bids at some point of the session
+     */
+    static final class OfferState{
+        private final int round;
+        private final double AV;
+        private final double care;
+        private final double reluctance;
+        private final int lastBidIndex;
+        private final boolean repeating;
+        private final BidSet offered;
+
+        private OfferState(JonnyBlack jb){
+            this.round = jb.round;
+            this.AV = jb.AV;
+            this.care = jb.care;
+            this.reluctance = jb.reluctance;
+            this.lastBidIndex = jb.lastBidIndex;
+            this.repeating = jb.repeating;
+            this.offered = jb.offered.copy();
+        }
     }
 
     public double getAgreementValue(){
         return AV;
     }
 
+    public double getCare(){
+        return care;
+    }
+
+    /**
+     * bilateral session, score offers against this model from now on
+     * @param opponent
+     */
     public void updateOpponentModel(OpponentModel opponent){
-        this.opponentModel = opponent;
+        if(!opponents.contains(opponent) || opponents.size() != 1)
+        {
+            setOpponents(single(domainIndex, opponent));
+        }
+    }
+
+    /**
+     * score offers against every model of the registry from now on
+     * @param opponents
+     */
+    public void setOpponents(OpponentRegistry opponents){
+        this.opponents = opponents;
+        //versions of another registry say nothing about the cached scores
+        opponentUtilityVersion = -1;
+        offerIndexStale = true;
     }
 
 }
@@ -0,0 +1,111 @@
+package group29;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram in nanoseconds, with HDR style log-linear buckets:
+ * exact below 64 ns, above that 32 buckets per power of two, so a percentile is within about 3%.
+ * Any thread can record, recording is a few atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    //the bucket of Long.MAX_VALUE is the last one
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos latency, negative counts as 0
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos))
+        {
+            m = max.get();
+        }
+    }
+
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return highest latency of the bucket the percentile falls in, capped at the maximum, 0 when empty
+     */
+    public long getPercentile(double percentile)
+    {
+        long n = count.get();
+        if (n == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++)
+        {
+            seen += counts.get(b);
+            if (seen >= rank)
+            {
+                return Math.min(highestValue(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * below 2 * SUB_COUNT the value itself, above that SUB_COUNT buckets for every power of two
+     * @param value
+     * @return
+     */
+    private static int bucket(long value)
+    {
+        if (value < 2 * SUB_COUNT)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket
+     * @return highest value that falls in the bucket
+     */
+    private static long highestValue(int bucket)
+    {
+        if (bucket < 2 * SUB_COUNT)
+        {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long top = bucket % SUB_COUNT + SUB_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,123 @@
+package group29;
+
+import java.util.Arrays;
+
+/**
+ * Index over (own utility, opponent utility) of the ranked bids, for choosing the next offer.
+ *
+ * The bids are in the rank of JonnyBlack, from high to low own utility, so an own utility threshold is a prefix
+ * of positions. Over the positions sits a segment tree of the maximum opponent utility, so the first position
+ * from some point on whose opponent utility reaches a threshold is found by descending the tree, in logarithmic
+ * time instead of scanning the rank. The opponent utilities are set again with set() and build() at every
+ * recompute of JonnyBlack, a bid that has been offered is taken out with remove().
+ */
+public class OfferIndex {
+
+    //the leaves of the tree start at capacity, tree[1] is the root
+    private float[] tree = new float[2];
+    private int capacity = 1;
+    private int size;
+
+    /**
+     * start over with size positions, all of them have to be set before build()
+     * @param size
+     */
+    public void reset(int size)
+    {
+        int capacity = 1;
+        while (capacity < size)
+        {
+            capacity <<= 1;
+        }
+        if (capacity != this.capacity)
+        {
+            this.capacity = capacity;
+            this.tree = new float[2 * capacity];
+        }
+        this.size = size;
+        Arrays.fill(tree, capacity + size, 2 * capacity, Float.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * @param position in the rank
+     * @param opponentUtility
+     */
+    public void set(int position, float opponentUtility)
+    {
+        tree[capacity + position] = opponentUtility;
+    }
+
+    /**
+     * compute the maxima of the inner nodes after the positions have been set
+     */
+    public void build()
+    {
+        for (int node = capacity - 1; node >= 1; node--)
+        {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * take a position out of the search, in logarithmic time
+     * @param position
+     */
+    public void remove(int position)
+    {
+        int node = capacity + position;
+        tree[node] = Float.NEGATIVE_INFINITY;
+        for (node >>>= 1; node >= 1; node >>>= 1)
+        {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param from first position
+     * @param to end position, exclusive
+     * @param threshold
+     * @return first position in [from, to) with opponent utility not lower than threshold, -1 if there is none
+     */
+    public int firstAtLeast(int from, int to, double threshold)
+    {
+        to = Math.min(to, size);
+        if (from >= to)
+        {
+            return -1;
+        }
+        int position = find(1, 0, capacity, from, threshold);
+        return position >= 0 && position < to ? position : -1;
+    }
+
+    /**
+     * @param node
+     * @param low first position under the node
+     * @param high end position under the node
+     * @param from
+     * @param threshold
+     * @return first position under the node not before from that reaches threshold, -1 if there is none
+     */
+    private int find(int node, int low, int high, int from, double threshold)
+    {
+        if (high <= from || !(tree[node] >= threshold))
+        {
+            return -1;
+        }
+        if (node >= capacity)
+        {
+            return low;
+        }
+        int mid = (low + high) >>> 1;
+        int position = find(2 * node, low, mid, from, threshold);
+        if (position >= 0)
+        {
+            return position;
+        }
+        return find(2 * node + 1, mid, high, from, threshold);
+    }
+}
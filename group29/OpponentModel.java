@@ -1,35 +1,21 @@
 package group29;
 
-import com.sun.xml.bind.v2.runtime.unmarshaller.XsiNilLoader;
 import genius.core.Bid;
-import genius.core.issue.Issue;
-import genius.core.issue.IssueDiscrete;
-import genius.core.issue.ValueDiscrete;
-import genius.core.utility.AdditiveUtilitySpace;
-
-import java.util.*;
-import java.util.stream.Collectors;
 
 public class OpponentModel {
 
-    private AdditiveUtilitySpace utilitySpace;
+    private DomainIndex domainIndex;
     private BidCounter bidCounter;
-    private HashMap<Issue, HashMap<ValueDiscrete, Float>> value_table;
-    private HashMap<Issue, Float> issue_weight;
+    //published by update(), read by the scoring loops of JonnyBlack
+    private volatile OpponentSnapshot snapshot;
+    private long version;
 
-    public OpponentModel(AdditiveUtilitySpace utilitySpace, BidCounter bidCounter)
+    public OpponentModel(DomainIndex domainIndex, BidCounter bidCounter)
     {
-        this.utilitySpace = utilitySpace;
+        this.domainIndex = domainIndex;
         this.bidCounter = bidCounter;
-        this.updateAllValue();
-
-        HashMap<Issue, Float> issue_weight = new HashMap<Issue, Float>();
-        List<Issue> issues = utilitySpace.getDomain().getIssues();
-        for(Issue issue: issues)
-        {
-            issue_weight.put(issue, 0.0f);
-        }
-        this.issue_weight = issue_weight;
+        this.snapshot = new OpponentSnapshot(domainIndex, version, computeAllValue(),
+                new float[domainIndex.getNumberOfIssues()]);
     }
 
     public void addBid(Bid bid)
@@ -37,129 +23,111 @@ public class OpponentModel {
         bidCounter.addBid(bid);
     }
 
-    private HashMap<ValueDiscrete, Float> optionValue(Issue issue)
+    /**
+     * value of an option is (k - rank + 1)/k, the most offered option of an issue with k options gets 1
+     * @return value_table[issue ordinal][value ordinal]
+     */
+    private float[][] computeAllValue()
     {
-        HashMap<ValueDiscrete, Integer> option_count = bidCounter.getOptionCount(issue);
-        HashMap<ValueDiscrete, Integer> option_rank = (HashMap<ValueDiscrete, Integer>) bidCounter.getOptionCount(issue).clone();
-        HashMap<ValueDiscrete, Float> option_value = new HashMap<ValueDiscrete, Float>();
-
-        Iterator it = option_count.entrySet().iterator();
-        while(it.hasNext())
+        int issueCount = domainIndex.getNumberOfIssues();
+        float[][] value_table = new float[issueCount][];
+        for(int i = 0; i < issueCount; i++)
         {
-            int rank = 1;
-            Map.Entry<ValueDiscrete, Integer> option_count_map = (Map.Entry<ValueDiscrete, Integer>) it.next();
-            ValueDiscrete option_key = option_count_map.getKey();
-            int count1 = option_count_map.getValue();
-            option_value.put(option_key, 0.0f);
-
-            for(int count2 : option_count.values())
+            int[] option_rank = bidCounter.getOptionRank(i);
+            int k = domainIndex.getNumberOfValues(i);
+            float[] option_value = new float[k];
+            for(int v = 0; v < k; v++)
             {
-                if(count2 > count1)
-                {
-                    rank += 1;
-                }
+                option_value[v] = (float)(k - option_rank[v] + 1)/k;
             }
-            option_rank.replace(option_key, rank);
-        }
-
-
-        int k = option_value.size();
-        Set<ValueDiscrete> keys = option_value.keySet();
-        for(ValueDiscrete key : keys)
-        {
-            int n = option_rank.get(key);
-            float rankValue = (float)(k - n + 1)/k;
-            option_value.replace(key, rankValue);
+            value_table[i] = option_value;
         }
-
-        return option_value;
+        return value_table;
     }
 
-    private HashMap<Issue, HashMap<ValueDiscrete, Float>> updateAllValue()
+    /**
+     * weight of an issue is the sum of the squared frequencies of its options, normalized over the issues,
+     * read in O(1) per issue from the sums of squares kept by BidCounter
+     * @param previous weights to keep while no bid has been counted
+     * @return issue_weight[issue ordinal]
+     */
+    private float[] computeIssueWeight(OpponentSnapshot previous)
     {
-        HashMap<Issue, HashMap<ValueDiscrete, Float>> newValueTable = new HashMap<Issue, HashMap<ValueDiscrete, Float>>();
-        List<Issue> issues = utilitySpace.getDomain().getIssues();
-        for(Issue issue: issues)
+        int issueCount = domainIndex.getNumberOfIssues();
+        float[] issue_weight = new float[issueCount];
+        int total = bidCounter.getTotal();
+        if(total == 0)
         {
-            HashMap<ValueDiscrete, Float> option_value = optionValue(issue);
-            newValueTable.put(issue, option_value);
+            for(int i = 0; i < issueCount; i++)
+            {
+                issue_weight[i] = previous.getWeight(i);
+            }
+            return issue_weight;
         }
-        this.value_table = newValueTable;
-        return newValueTable;
-    }
-
-    private HashMap<Issue, Float> updateIssueWeight()
-    {
-        HashMap<Issue, Float> issue_weight = new HashMap<Issue, Float>();
-        List<Issue> issues = utilitySpace.getDomain().getIssues();
 
+        double total_f = (double) total * total;
         float total_weight = 0;
-        for(Issue issue: issues)
+        for(int i = 0; i < issueCount; i++)
         {
-            HashMap<ValueDiscrete, Integer> option_count = bidCounter.getOptionCount(issue);
-
-            float total_f = 0;
-            ArrayList<Integer> f_list = new ArrayList<>();
-            for(ValueDiscrete key: option_count.keySet())
-            {
-                int f = option_count.get(key);
-                total_f += f;
-                f_list.add(f);
-            }
-
-            float weight = 0;
-            for(int f: f_list)
-            {
-                weight += (f/total_f)*(f/total_f);
-            }
-
-            issue_weight.put(issue, weight);
+            float weight = (float)(bidCounter.getSumOfSquares(i)/total_f);
+            issue_weight[i] = weight;
             total_weight += weight;
         }
 
-        HashMap<Issue, Float> normal_issue_weight = new HashMap<Issue, Float>();
-        for(Issue key: issue_weight.keySet())
+        for(int i = 0; i < issueCount; i++)
         {
-            float weight = issue_weight.get(key);
-            normal_issue_weight.put(key, (weight/total_weight));
+            issue_weight[i] = issue_weight[i]/total_weight;
         }
-
-        return normal_issue_weight;
+        return issue_weight;
     }
 
+    /**
+     * refresh weights and values from the counters and publish them as a new snapshot,
+     * cheap enough to run after every received bid
+     */
     public void update()
     {
-        this.issue_weight = updateIssueWeight();
-        updateAllValue();
+        OpponentSnapshot previous = snapshot;
+        version += 1;
+        snapshot = new OpponentSnapshot(domainIndex, version, computeAllValue(), computeIssueWeight(previous));
+    }
+
+    /**
+     * @return the model as of the last update, never changes afterwards
+     */
+    public OpponentSnapshot getSnapshot()
+    {
+        return snapshot;
     }
 
     public float getUtility(Bid bid)
     {
-        float utility = 0;
-        List<Issue> issues = bid.getIssues();
-        for (Issue issue : issues) {
-            ValueDiscrete value = (ValueDiscrete) bid.getValue(issue);
-            float normal_value = value_table.get(issue).get(value);
-            float normal_weight = issue_weight.get(issue);
-            utility += normal_value*normal_weight;
-        }
-        return utility;
+        return getUtility(domainIndex.encode(bid));
+    }
+
+    public float getUtility(int[] ordinals)
+    {
+        return snapshot.getUtility(ordinals);
+    }
+
+    public float getUtility(long bidId)
+    {
+        return snapshot.getUtility(bidId);
     }
 
 
     public String getIssueWeightStr()
     {
-        String s = "************ Updated Issue Weights ************\n";
-        Iterator it = issue_weight.entrySet().iterator();
-        while(it.hasNext())
+        StringBuilder s = new StringBuilder("************ Updated Issue Weights ************\n");
+        OpponentSnapshot snapshot = this.snapshot;
+        for(int i = 0; i < domainIndex.getNumberOfIssues(); i++)
         {
-            Map.Entry<Issue, Float> map = (Map.Entry<Issue, Float>) it.next();
-            String issueName = map.getKey().getName();
-            Float weight = map.getValue();
-            s += "Issue Name: " + issueName + " Weight: " + weight + "\n";
+            String issueName = domainIndex.getIssue(i).getName();
+            float weight = snapshot.getWeight(i);
+            s.append("Issue Name: ").append(issueName).append(" Weight: ").append(weight).append('\n');
         }
-        s += "\n";
-        return s;
+        s.append('\n');
+        return s.toString();
     }
 
     public String getBidCountStr()
@@ -169,28 +137,23 @@ public class OpponentModel {
 
     public String getOptionValueStr()
     {
-        String s = "************ Option Value table ************\n";
-        Iterator it = value_table.entrySet().iterator();
-        while(it.hasNext())
+        StringBuilder s = new StringBuilder("************ Option Value table ************\n");
+        OpponentSnapshot snapshot = this.snapshot;
+        for(int i = 0; i < domainIndex.getNumberOfIssues(); i++)
         {
-            Map.Entry<Issue, HashMap<ValueDiscrete, Float>> map = (Map.Entry<Issue, HashMap<ValueDiscrete, Float>>) it.next();
-            String issueName = map.getKey().getName();
-            s += "Issue Name: " + issueName + "\n";
-            HashMap<ValueDiscrete, Float> issue_value_table = map.getValue();
-            Iterator it2 = issue_value_table.entrySet().iterator();
-            while(it2.hasNext())
+            String issueName = domainIndex.getIssue(i).getName();
+            s.append("Issue Name: ").append(issueName).append('\n');
+            for(int v = 0; v < domainIndex.getNumberOfValues(i); v++)
             {
-                Map.Entry<ValueDiscrete, Float> map2 = (Map.Entry<ValueDiscrete, Float>) it2.next();
-                String valueName = map2.getKey().getValue();
-                Float value = map2.getValue();
-                s += "Option: " + valueName + " value: " + value + "\n";
+                String valueName = domainIndex.getValue(i, v).getValue();
+                float value = snapshot.getValue(i, v);
+                s.append("Option: ").append(valueName).append(" value: ").append(value).append('\n');
             }
 
         }
-        s += "\n";
-        return s;
+        s.append('\n');
+        return s.toString();
     }
 
 
 }
-
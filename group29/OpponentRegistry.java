@@ -0,0 +1,114 @@
+package group29;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * One OpponentModel per party of a multilateral session, keyed by AgentID.
+ * All models share the DomainIndex of the session, a new party costs one BidCounter and one value table.
+ *
+ * getScores() combines the current snapshots of all models into one JointOpponentSnapshot, made again only
+ * when one of the models has been updated or a party has been added.
+ */
+public class OpponentRegistry {
+
+    private final DomainIndex domainIndex;
+    private final HashMap<AgentID, OpponentModel> models = new HashMap<AgentID, OpponentModel>();
+    //in the order the parties first offered, so the joint scores do not depend on hashing
+    private final ArrayList<OpponentModel> order = new ArrayList<OpponentModel>();
+
+    private JointOpponentSnapshot scores;
+    private OpponentSnapshot[] scoredSnapshots = new OpponentSnapshot[0];
+    private long version = -1;
+
+    public OpponentRegistry(DomainIndex domainIndex)
+    {
+        this.domainIndex = domainIndex;
+    }
+
+    /**
+     * @param party
+     * @return the model of the party, a new empty one the first time
+     */
+    public OpponentModel get(AgentID party)
+    {
+        OpponentModel model = models.get(party);
+        if (model == null)
+        {
+            BidCounter bidCounter = new BidCounter(domainIndex);
+            bidCounter.init();
+            model = new OpponentModel(domainIndex, bidCounter);
+            models.put(party, model);
+            order.add(model);
+        }
+        return model;
+    }
+
+    /**
+     * use an existing model for a party
+     * @param party
+     * @param model must use the same DomainIndex
+     */
+    public void put(AgentID party, OpponentModel model)
+    {
+        OpponentModel previous = models.put(party, model);
+        if (previous == null)
+        {
+            order.add(model);
+        }
+        else
+        {
+            order.set(order.indexOf(previous), model);
+        }
+    }
+
+    /**
+     * count an offer of a party in its model and refresh the model
+     * @param party
+     * @param bid
+     */
+    public void addOffer(AgentID party, Bid bid)
+    {
+        OpponentModel model = get(party);
+        model.addBid(bid);
+        model.update();
+    }
+
+    public boolean contains(OpponentModel model)
+    {
+        return order.contains(model);
+    }
+
+    public int size()
+    {
+        return models.size();
+    }
+
+    /**
+     * @return the models as of their last update, scored together
+     */
+    public JointOpponentSnapshot getScores()
+    {
+        int parties = order.size();
+        boolean changed = scores == null || scoredSnapshots.length != parties;
+        for (int p = 0; !changed && p < parties; p++)
+        {
+            changed = order.get(p).getSnapshot() != scoredSnapshots[p];
+        }
+        if (changed)
+        {
+            OpponentSnapshot[] snapshots = new OpponentSnapshot[parties];
+            for (int p = 0; p < parties; p++)
+            {
+                snapshots[p] = order.get(p).getSnapshot();
+            }
+            version += 1;
+            scores = new JointOpponentSnapshot(domainIndex, version, snapshots);
+            scoredSnapshots = snapshots;
+        }
+        return scores;
+    }
+}
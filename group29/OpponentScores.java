@@ -0,0 +1,22 @@
+package group29;
+
+/**
+ * Predicted opponent utility of bids, as of one version of the opponent models.
+ * An implementation never changes, a new version is a new object with a higher version number.
+ */
+public interface OpponentScores {
+
+    long getVersion();
+
+    /**
+     * @param ordinals value ordinal of every issue
+     * @return predicted opponent utility
+     */
+    float getUtility(int[] ordinals);
+
+    /**
+     * @param bidId DomainIndex id
+     * @return predicted opponent utility
+     */
+    float getUtility(long bidId);
+}
@@ -0,0 +1,88 @@
+package group29;
+
+/**
+ * Immutable opponent model as it was after one OpponentModel.update(): the issue weights and the value table
+ * indexed by issue and value ordinal. Scoring a bid is a loop over primitive arrays, and a snapshot can be
+ * read from any thread without locking.
+ *
+ * Every update publishes a snapshot with a higher version, so scores computed from one snapshot can be
+ * cached and reused until getVersion() changes.
+ */
+public final class OpponentSnapshot implements OpponentScores {
+
+    private final DomainIndex domainIndex;
+    private final long version;
+    //values[issue ordinal][value ordinal], weights[issue ordinal]
+    private final float[][] values;
+    private final float[] weights;
+
+    /**
+     * the arrays are taken over, not copied, they must not be changed afterwards
+     * @param domainIndex
+     * @param version
+     * @param values
+     * @param weights
+     */
+    OpponentSnapshot(DomainIndex domainIndex, long version, float[][] values, float[] weights)
+    {
+        this.domainIndex = domainIndex;
+        this.version = version;
+        this.values = values;
+        this.weights = weights;
+    }
+
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @param ordinals value ordinal of every issue
+     * @return predicted opponent utility
+     */
+    @Override
+    public float getUtility(int[] ordinals)
+    {
+        float utility = 0;
+        for (int i = 0; i < weights.length; i++)
+        {
+            utility += values[i][ordinals[i]] * weights[i];
+        }
+        return utility;
+    }
+
+    /**
+     * @param bidId DomainIndex id
+     * @return predicted opponent utility
+     */
+    @Override
+    public float getUtility(long bidId)
+    {
+        float utility = 0;
+        for (int i = 0; i < weights.length; i++)
+        {
+            utility += values[i][domainIndex.getValueOrdinal(bidId, i)] * weights[i];
+        }
+        return utility;
+    }
+
+    /**
+     * @param issue ordinal
+     * @return normalized weight of the issue
+     */
+    public float getWeight(int issue)
+    {
+        return weights[issue];
+    }
+
+    /**
+     * @param issue ordinal
+     * @param value ordinal
+     * @return value of the option, between 0 and 1
+     */
+    public float getValue(int issue, int value)
+    {
+        return values[issue][value];
+    }
+}
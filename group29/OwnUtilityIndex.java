@@ -0,0 +1,204 @@
+package group29;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Every bid of the domain sorted once from high to low own utility, in two primitive arrays.
+ *
+ * Our estimated utility space does not change between recomputes, so the feasible bids for an agreement
+ * value are always a prefix of this order: countAtLeast(AV) finds its end by binary search, nothing is
+ * scored or sorted again. The order is the same as ScoredBids.sortDescending, so the prefix is exactly
+ * what ThresholdBidSearch.atLeast returns.
+ *
+ * Scoring and sorting run in parallel when Parallelism is enabled.
+ * It takes 16 bytes per outcome, domains above MAX_SIZE are left to ThresholdBidSearch.
+ *
+ * Tournaments run many sessions on the same profile in one JVM, and the same bid ranking gives the same estimate
+ * (see CachingEstimator), so of() shares the index of equal utility tables between sessions instead of sorting
+ * the outcome space again. The CACHE_CAPACITY most recently used tables are kept (-Dgroup29.index.cache,
+ * 0 for no sharing), their indexes by soft reference so the collector can take them back under memory pressure.
+ */
+public class OwnUtilityIndex {
+
+    public static final long MAX_SIZE = 1 << 22;
+    //bids per task when scoring in parallel
+    private static final long CHUNK_SIZE = 1 << 16;
+    private static final int CACHE_CAPACITY = Integer.getInteger("group29.index.cache", 4);
+
+    private static final LinkedHashMap<TableKey, CacheEntry> CACHE = new LinkedHashMap<TableKey, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TableKey, CacheEntry> eldest)
+        {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    private final long[] bids;
+    private final double[] utilities;
+
+    public OwnUtilityIndex(UtilityTable utilityTable)
+    {
+        DomainIndex domainIndex = utilityTable.getDomainIndex();
+        if (!fits(domainIndex))
+        {
+            throw new IllegalArgumentException("Domain of " + domainIndex.size() + " outcomes is too large to index");
+        }
+        int size = (int) domainIndex.size();
+        long[] bids = new long[size];
+        double[] utilities = new double[size];
+        Parallelism.forEachRange(size, CHUNK_SIZE, (from, to) -> {
+            new BidEnumerator(domainIndex, from, to).forEachRemaining((long bid, int[] ordinals) -> {
+                bids[(int) bid] = bid;
+                utilities[(int) bid] = utilityTable.getUtility(ordinals);
+            });
+        });
+        ScoredBids scored = new ScoredBids(bids, utilities);
+        scored.sortDescending();
+        this.bids = scored.toBidArray();
+        this.utilities = scored.toUtilityArray();
+    }
+
+    /**
+     * @param utilityTable
+     * @return the index of an equal utility table of an earlier session, or a new one. Concurrent sessions with
+     * equal tables build it only once, sessions with other tables do not wait for them
+     */
+    public static OwnUtilityIndex of(UtilityTable utilityTable)
+    {
+        if (CACHE_CAPACITY <= 0)
+        {
+            return new OwnUtilityIndex(utilityTable);
+        }
+        TableKey key = new TableKey(utilityTable);
+        CacheEntry entry;
+        synchronized (CACHE)
+        {
+            entry = CACHE.get(key);
+            if (entry == null)
+            {
+                entry = new CacheEntry();
+                CACHE.put(key, entry);
+            }
+        }
+        synchronized (entry)
+        {
+            OwnUtilityIndex index = entry.index.get();
+            if (index == null)
+            {
+                index = new OwnUtilityIndex(utilityTable);
+                entry.index = new SoftReference<OwnUtilityIndex>(index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * @param domainIndex
+     * @return true if the domain is small enough to be indexed
+     */
+    public static boolean fits(DomainIndex domainIndex)
+    {
+        return domainIndex.size() <= MAX_SIZE;
+    }
+
+    /**
+     * @param threshold
+     * @return number of bids with utility not lower than threshold, they are the first ones of getBids()
+     */
+    public int countAtLeast(double threshold)
+    {
+        return countAtLeast(utilities, utilities.length, threshold);
+    }
+
+    /**
+     * @param utilities sorted from high to low
+     * @param size number of utilities to search
+     * @param threshold
+     * @return number of the first size utilities that are not lower than threshold
+     */
+    public static int countAtLeast(double[] utilities, int size, double threshold)
+    {
+        //first position with a utility below the threshold
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (utilities[mid] >= threshold)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int size()
+    {
+        return bids.length;
+    }
+
+    /**
+     * @return all bid ids from high to low utility, shared, must not be changed
+     */
+    public long[] getBids()
+    {
+        return bids;
+    }
+
+    /**
+     * @return utility of every bid of getBids(), shared, must not be changed
+     */
+    public double[] getUtilities()
+    {
+        return utilities;
+    }
+
+    /**
+     * the weighted values of a utility table, the sorted ids only depend on them and the number of values per issue
+     */
+    private static final class TableKey {
+        private final double[][] table;
+        private final int hash;
+
+        private TableKey(UtilityTable utilityTable)
+        {
+            DomainIndex domainIndex = utilityTable.getDomainIndex();
+            this.table = new double[domainIndex.getNumberOfIssues()][];
+            for (int i = 0; i < table.length; i++)
+            {
+                table[i] = new double[domainIndex.getNumberOfValues(i)];
+                for (int v = 0; v < table[i].length; v++)
+                {
+                    table[i][v] = utilityTable.getContribution(i, v);
+                }
+            }
+            this.hash = Arrays.deepHashCode(table);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof TableKey && hash == ((TableKey) o).hash && Arrays.deepEquals(table, ((TableKey) o).table);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * the index of one table, built by the first session that needs it while the others with that table wait
+     */
+    private static final class CacheEntry {
+        private SoftReference<OwnUtilityIndex> index = new SoftReference<OwnUtilityIndex>(null);
+    }
+}
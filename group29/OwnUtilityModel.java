@@ -0,0 +1,56 @@
+package group29;
+
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * One estimate of our own utility space with everything JonnyBlack derives from it: the value table, the
+ * threshold search and, for domains that fit, the bids sorted by utility.
+ *
+ * Building it takes long on large domains (about 0.7 s at 4M outcomes for the OwnUtilityIndex), so the
+ * estimator thread builds it complete and hands it over in one volatile write; the negotiation thread only
+ * switches references. It is immutable and can be read from any thread. The OwnUtilityIndex is shared with
+ * earlier sessions that had the same utility table, see OwnUtilityIndex.of.
+ */
+public final class OwnUtilityModel {
+
+    private final AdditiveUtilitySpace utilitySpace;
+    private final UtilityTable utilityTable;
+    private final ThresholdBidSearch bidSearch;
+    //null when the domain is too large to index, see OwnUtilityIndex.fits
+    private final OwnUtilityIndex ownIndex;
+
+    /**
+     * @param utilitySpace
+     * @param domainIndex
+     */
+    public OwnUtilityModel(AdditiveUtilitySpace utilitySpace, DomainIndex domainIndex)
+    {
+        this.utilitySpace = utilitySpace;
+        this.utilityTable = new UtilityTable(utilitySpace, domainIndex);
+        this.bidSearch = new ThresholdBidSearch(utilityTable);
+        this.ownIndex = OwnUtilityIndex.fits(domainIndex) ? OwnUtilityIndex.of(utilityTable) : null;
+    }
+
+    public AdditiveUtilitySpace getUtilitySpace()
+    {
+        return utilitySpace;
+    }
+
+    public UtilityTable getUtilityTable()
+    {
+        return utilityTable;
+    }
+
+    public ThresholdBidSearch getBidSearch()
+    {
+        return bidSearch;
+    }
+
+    /**
+     * @return the sorted bids, or null when the domain is too large to index
+     */
+    public OwnUtilityIndex getOwnIndex()
+    {
+        return ownIndex;
+    }
+}
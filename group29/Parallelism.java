@@ -0,0 +1,106 @@
+package group29;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+/**
+ * The parallel mode of the evaluation of the bid space, set with -Dgroup29.parallelism (default 1, serial).
+ *
+ * Above 1 the work runs in one ForkJoinPool of that many threads, shared by every agent in the JVM, so agents
+ * that share a host never use more cores than configured. Parallel streams started inside run() or call()
+ * run in that pool and not in the common pool. All parallel work is split by bid id range and merged in a
+ * fixed order, so the results are identical to the serial ones.
+ */
+public final class Parallelism {
+
+    private static final int LEVEL = Math.max(1, Integer.getInteger("group29.parallelism", 1));
+
+    private static ForkJoinPool pool;
+
+    public interface RangeTask {
+        /**
+         * @param from first bid id
+         * @param to end bid id, exclusive
+         */
+        void run(long from, long to);
+    }
+
+    private Parallelism()
+    {
+    }
+
+    /**
+     * @return number of threads of the evaluation
+     */
+    public static int getLevel()
+    {
+        return LEVEL;
+    }
+
+    public static boolean isEnabled()
+    {
+        return LEVEL > 1;
+    }
+
+    private static synchronized ForkJoinPool pool()
+    {
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(LEVEL, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("group29-worker-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * @param task run in the pool, or in this thread when the mode is serial
+     */
+    public static void run(Runnable task)
+    {
+        if (isEnabled())
+        {
+            pool().submit(task).join();
+        }
+        else
+        {
+            task.run();
+        }
+    }
+
+    /**
+     * @param task run in the pool, or in this thread when the mode is serial
+     * @return result of the task
+     */
+    public static <T> T call(Supplier<T> task)
+    {
+        if (isEnabled())
+        {
+            return pool().submit(task::get).join();
+        }
+        return task.get();
+    }
+
+    /**
+     * run task over [0, size) in ranges of chunkSize, in parallel if enabled, otherwise as one range
+     * @param size
+     * @param chunkSize
+     * @param task must only write to what belongs to its own range
+     */
+    public static void forEachRange(long size, long chunkSize, RangeTask task)
+    {
+        long chunks = (size + chunkSize - 1) / chunkSize;
+        if (!isEnabled() || chunks < 2)
+        {
+            task.run(0, size);
+            return;
+        }
+        run(() -> LongStream.range(0, chunks).parallel().forEach(c -> {
+            task.run(c * chunkSize, Math.min(size, (c + 1) * chunkSize));
+        }));
+    }
+}
@@ -0,0 +1,74 @@
+package group29;
+
+/**
+ * One LatencyHistogram per phase of a session, always on.
+ *
+ *      long start = System.nanoTime();
+ *      ...
+ *      latencies.record(PhaseLatencies.Phase.CHOOSE_ACTION, start);
+ *
+ * getSummary() gives count, mean, p50, p90, p99, p999 and max per phase, for the end of the session.
+ */
+public class PhaseLatencies {
+
+    public enum Phase {
+        //init
+        DOMAIN_INDEX,
+        ESTIMATION,
+        RANKING,
+        //background solver, see Agent29.startEstimation
+        SOLVE,
+        //every round
+        CHOOSE_ACTION,
+        RECEIVE_MESSAGE,
+        OPPONENT_UPDATE,
+        //every 10 rounds in JonnyBlack.makeAnOffer
+        RECOMPUTE
+    }
+
+    private final LatencyHistogram[] histograms;
+
+    public PhaseLatencies()
+    {
+        histograms = new LatencyHistogram[Phase.values().length];
+        for (int p = 0; p < histograms.length; p++)
+        {
+            histograms[p] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param phase
+     * @param startNanos System.nanoTime() at the start of the phase
+     */
+    public void record(Phase phase, long startNanos)
+    {
+        histograms[phase.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram getHistogram(Phase phase)
+    {
+        return histograms[phase.ordinal()];
+    }
+
+    /**
+     * @return a line per phase that has been recorded, latencies in microseconds
+     */
+    public String getSummary()
+    {
+        StringBuilder s = new StringBuilder("************ Latency per phase (us) ************\n");
+        s.append(String.format("%-16s %8s %10s %10s %10s %10s %10s %10s%n", "phase", "count", "mean", "p50", "p90", "p99", "p999", "max"));
+        for (Phase phase : Phase.values())
+        {
+            LatencyHistogram h = histograms[phase.ordinal()];
+            if (h.getCount() == 0)
+            {
+                continue;
+            }
+            s.append(String.format("%-16s %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", phase, h.getCount(),
+                    h.getMean() / 1000, h.getPercentile(50) / 1000.0, h.getPercentile(90) / 1000.0,
+                    h.getPercentile(99) / 1000.0, h.getPercentile(99.9) / 1000.0, h.getMax() / 1000.0));
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,115 @@
+package group29;
+
+import java.util.Arrays;
+
+/**
+ * Result of a PreferenceEstimator: weights[issue] and utilities[issue][value], indexed by DomainIndex ordinals.
+ * A solver that ran out of its time budget returns its best incumbent, not optimal, with the remaining
+ * relative optimality gap (NaN when the solver cannot tell).
+ */
+public class PreferenceEstimate {
+
+    private final double[] weights;
+    private final double[][] utilities;
+    private final boolean optimal;
+    private final double gap;
+
+    public PreferenceEstimate(double[] weights, double[][] utilities)
+    {
+        this(weights, utilities, true, 0.0);
+    }
+
+    public PreferenceEstimate(double[] weights, double[][] utilities, boolean optimal, double gap)
+    {
+        this.weights = weights;
+        this.utilities = utilities;
+        this.optimal = optimal;
+        this.gap = gap;
+    }
+
+    /**
+     * @param optimal
+     * @param gap
+     * @return the same weights and values with another solve status
+     */
+    public PreferenceEstimate withStatus(boolean optimal, double gap)
+    {
+        return new PreferenceEstimate(weights, utilities, optimal, gap);
+    }
+
+    public boolean isOptimal()
+    {
+        return optimal;
+    }
+
+    public double getGap()
+    {
+        return gap;
+    }
+
+    /**
+     * estimate from the products v_ij = w_i * u_ij of a linearized model, w_i = max_j v_ij and u_ij = v_ij / w_i,
+     * so the best value of every issue evaluates to 1, which is how genius normalizes discrete evaluators anyway
+     * @param products v[issue][value]
+     * @return
+     */
+    public static PreferenceEstimate fromProducts(double[][] products)
+    {
+        int issueCount = products.length;
+        double[] weights = new double[issueCount];
+        double[][] utilities = new double[issueCount][];
+        double totalWeight = 0;
+        for (int i = 0; i < issueCount; i++)
+        {
+            int valueCount = products[i].length;
+            utilities[i] = new double[valueCount];
+            double weight = 0;
+            for (int v = 0; v < valueCount; v++)
+            {
+                weight = Math.max(weight, products[i][v]);
+            }
+            for (int v = 0; v < valueCount; v++)
+            {
+                //an issue that does not matter gets a flat evaluation
+                utilities[i][v] = weight > 0 ? Math.max(products[i][v], 0) / weight : 1.0;
+            }
+            weights[i] = weight;
+            totalWeight += weight;
+        }
+
+        for (int i = 0; i < issueCount; i++)
+        {
+            weights[i] = totalWeight > 0 ? weights[i] / totalWeight : 1.0 / issueCount;
+        }
+        return new PreferenceEstimate(weights, utilities);
+    }
+
+    /**
+     * @param other
+     * @return true if both have the same weights and values, whatever the solve status
+     */
+    public boolean sameAs(PreferenceEstimate other)
+    {
+        return Arrays.equals(weights, other.weights) && Arrays.deepEquals(utilities, other.utilities);
+    }
+
+    public double getWeight(int issue)
+    {
+        return weights[issue];
+    }
+
+    public double getUtility(int issue, int value)
+    {
+        return utilities[issue][value];
+    }
+
+    public int getNumberOfIssues()
+    {
+        return weights.length;
+    }
+
+    public int getNumberOfValues(int issue)
+    {
+        return utilities[issue].length;
+    }
+}
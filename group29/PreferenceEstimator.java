@@ -0,0 +1,17 @@
+package group29;
+
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Estimates an additive utility space from the partial bid ranking of the user model.
+ * MyAdditiveUtilitySpaceFactory delegates estimateUsingBidRanks to one of these.
+ */
+public interface PreferenceEstimator {
+
+    /**
+     * @param domainIndex ordinals of the domain of the ranking
+     * @param bidRanking ranking from the user model, low to high
+     * @return weight of every issue and utility of every value, indexed by ordinal
+     */
+    PreferenceEstimate estimate(DomainIndex domainIndex, BidRanking bidRanking);
+}
@@ -0,0 +1,200 @@
+package group29;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Growable list of bid ids with one utility per bid, kept in two primitive arrays.
+ * The utility is computed once when the bid is added and reused by the sort.
+ */
+public class ScoredBids {
+
+    //sort halves in parallel down to this length, see Parallelism
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 14;
+
+    private long[] bids;
+    private double[] utilities;
+    private int size;
+
+    public ScoredBids()
+    {
+        this(16);
+    }
+
+    public ScoredBids(int capacity)
+    {
+        this.bids = new long[Math.max(capacity, 1)];
+        this.utilities = new double[bids.length];
+        this.size = 0;
+    }
+
+    /**
+     * the arrays are taken over, not copied
+     * @param bids
+     * @param utilities utility of every bid
+     */
+    ScoredBids(long[] bids, double[] utilities)
+    {
+        this.bids = bids;
+        this.utilities = utilities;
+        this.size = bids.length;
+    }
+
+    public void add(long bid, double utility)
+    {
+        if (size == bids.length)
+        {
+            int capacity = bids.length * 2;
+            bids = Arrays.copyOf(bids, capacity);
+            utilities = Arrays.copyOf(utilities, capacity);
+        }
+        bids[size] = bid;
+        utilities[size] = utility;
+        size += 1;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long getBid(int index)
+    {
+        return bids[index];
+    }
+
+    public double getUtility(int index)
+    {
+        return utilities[index];
+    }
+
+    /**
+     * sort from high to low utility, equal utilities keep the later bid first
+     * (same order as the old ascending sort followed by a reverse).
+     * Long lists are sorted in parallel when Parallelism is enabled, the order is a total one so the result is the same.
+     */
+    public void sortDescending()
+    {
+        long[] bidBuffer = new long[size];
+        double[] utilityBuffer = new double[size];
+        if (Parallelism.isEnabled() && size >= 2 * PARALLEL_SORT_THRESHOLD)
+        {
+            Parallelism.run(() -> new SortTask(bids, utilities, bidBuffer, utilityBuffer, 0, size).invoke());
+        }
+        else
+        {
+            mergeSort(bids, utilities, bidBuffer, utilityBuffer, 0, size);
+        }
+    }
+
+    public long[] toBidArray()
+    {
+        return Arrays.copyOf(bids, size);
+    }
+
+    public double[] toUtilityArray()
+    {
+        return Arrays.copyOf(utilities, size);
+    }
+
+    private static boolean before(long bid1, double utility1, long bid2, double utility2)
+    {
+        int c = Double.compare(utility1, utility2);
+        return c > 0 || (c == 0 && bid1 > bid2);
+    }
+
+    private static void mergeSort(long[] bids, double[] utilities, long[] bidBuffer, double[] utilityBuffer, int from, int to)
+    {
+        int length = to - from;
+        if (length < 32)
+        {
+            //insertion sort for short runs
+            for (int i = from + 1; i < to; i++)
+            {
+                long bid = bids[i];
+                double utility = utilities[i];
+                int j = i - 1;
+                while (j >= from && before(bid, utility, bids[j], utilities[j]))
+                {
+                    bids[j + 1] = bids[j];
+                    utilities[j + 1] = utilities[j];
+                    j -= 1;
+                }
+                bids[j + 1] = bid;
+                utilities[j + 1] = utility;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(bids, utilities, bidBuffer, utilityBuffer, from, mid);
+        mergeSort(bids, utilities, bidBuffer, utilityBuffer, mid, to);
+        merge(bids, utilities, bidBuffer, utilityBuffer, from, mid, to);
+    }
+
+    /**
+     * merge sort that sorts both halves as separate tasks
+     */
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] bids;
+        private final double[] utilities;
+        private final long[] bidBuffer;
+        private final double[] utilityBuffer;
+        private final int from;
+        private final int to;
+
+        private SortTask(long[] bids, double[] utilities, long[] bidBuffer, double[] utilityBuffer, int from, int to)
+        {
+            this.bids = bids;
+            this.utilities = utilities;
+            this.bidBuffer = bidBuffer;
+            this.utilityBuffer = utilityBuffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from < PARALLEL_SORT_THRESHOLD)
+            {
+                mergeSort(bids, utilities, bidBuffer, utilityBuffer, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SortTask(bids, utilities, bidBuffer, utilityBuffer, from, mid),
+                    new SortTask(bids, utilities, bidBuffer, utilityBuffer, mid, to));
+            merge(bids, utilities, bidBuffer, utilityBuffer, from, mid, to);
+        }
+    }
+
+    private static void merge(long[] bids, double[] utilities, long[] bidBuffer, double[] utilityBuffer, int from, int mid, int to)
+    {
+        //already in order
+        if (!before(bids[mid], utilities[mid], bids[mid - 1], utilities[mid - 1]))
+        {
+            return;
+        }
+        System.arraycopy(bids, from, bidBuffer, from, to - from);
+        System.arraycopy(utilities, from, utilityBuffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++)
+        {
+            if (j >= to || (i < mid && !before(bidBuffer[j], utilityBuffer[j], bidBuffer[i], utilityBuffer[i])))
+            {
+                bids[k] = bidBuffer[i];
+                utilities[k] = utilityBuffer[i];
+                i += 1;
+            }
+            else
+            {
+                bids[k] = bidBuffer[j];
+                utilities[k] = utilityBuffer[j];
+                j += 1;
+            }
+        }
+    }
+}
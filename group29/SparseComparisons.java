@@ -0,0 +1,232 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.OutcomeComparison;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The pairwise comparisons of a ranking compiled for the estimation models.
+ *
+ * Every comparison "better >= worse" is kept as a sparse difference: only the issues where the two bids
+ * offer different values, with the value ordinal of each side. Issues with the same value cancel out of
+ * any additive model, so they never reach a solver. Before that, comparisons are dropped when
+ *  - both sides are the same bid,
+ *  - they are implied by a chain of comparisons between neighbours in the bid order
+ *    (better >= b >= worse with margin e gives better >= worse with margin 2e),
+ *  - another comparison has exactly the same difference, which is the same constraint.
+ *
+ * Comparisons are stored in flat arrays, comparison k has the entries start[k] until start[k + 1].
+ */
+public class SparseComparisons {
+
+    private final int inputCount;
+    private final int size;
+    private final int[] start;
+    private final int[] issues;
+    private final int[] betterValues;
+    private final int[] worseValues;
+
+    private SparseComparisons(int inputCount, int size, int[] start, int[] issues, int[] betterValues, int[] worseValues)
+    {
+        this.inputCount = inputCount;
+        this.size = size;
+        this.start = start;
+        this.issues = issues;
+        this.betterValues = betterValues;
+        this.worseValues = worseValues;
+    }
+
+    /**
+     * @param domainIndex
+     * @param bidRanking
+     * @return the reduced sparse comparisons of the ranking
+     */
+    public static SparseComparisons compile(DomainIndex domainIndex, BidRanking bidRanking)
+    {
+        int issueCount = domainIndex.getNumberOfIssues();
+        List<OutcomeComparison> comparisons = bidRanking.getPairwiseComparisons();
+
+        //position of every bid in the bid order, from low to high
+        List<Bid> bidOrder = bidRanking.getBidOrder();
+        HashMap<Long, Integer> position = new HashMap<Long, Integer>();
+        for (int p = 0; p < bidOrder.size(); p++)
+        {
+            position.put(domainIndex.encode(bidOrder.get(p)), p);
+        }
+
+        //every comparison as (better, worse) ids, with result -1 bid2 is the better one
+        int n = comparisons.size();
+        long[] better = new long[n];
+        long[] worse = new long[n];
+        //linked[p] is true when there is a comparison of the neighbours at p and p + 1 in the right direction
+        boolean[] linked = new boolean[Math.max(bidOrder.size(), 1)];
+        for (int k = 0; k < n; k++)
+        {
+            OutcomeComparison comparison = comparisons.get(k);
+            better[k] = domainIndex.encode(comparison.getBid2());
+            worse[k] = domainIndex.encode(comparison.getBid1());
+            if (comparison.getComparisonResult() != -1)
+            {
+                long swap = better[k];
+                better[k] = worse[k];
+                worse[k] = swap;
+            }
+            Integer worsePosition = position.get(worse[k]);
+            Integer betterPosition = position.get(better[k]);
+            if (worsePosition != null && betterPosition != null && betterPosition == worsePosition + 1)
+            {
+                linked[worsePosition] = true;
+            }
+        }
+        //links[p] is the number of linked neighbours below p, a chain from p to q is complete if links[q] - links[p] == q - p
+        int[] links = new int[linked.length + 1];
+        for (int p = 0; p < linked.length; p++)
+        {
+            links[p + 1] = links[p] + (linked[p] ? 1 : 0);
+        }
+
+        int[] start = new int[n + 1];
+        int[] issues = new int[n * issueCount];
+        int[] betterValues = new int[n * issueCount];
+        int[] worseValues = new int[n * issueCount];
+        HashSet<Difference> seen = new HashSet<Difference>();
+        int size = 0;
+        int entries = 0;
+        for (int k = 0; k < n; k++)
+        {
+            if (better[k] == worse[k])
+            {
+                continue;
+            }
+            Integer worsePosition = position.get(worse[k]);
+            Integer betterPosition = position.get(better[k]);
+            if (worsePosition != null && betterPosition != null && betterPosition > worsePosition + 1
+                    && links[betterPosition] - links[worsePosition] == betterPosition - worsePosition)
+            {
+                continue;
+            }
+
+            int first = entries;
+            for (int i = 0; i < issueCount; i++)
+            {
+                int betterValue = domainIndex.getValueOrdinal(better[k], i);
+                int worseValue = domainIndex.getValueOrdinal(worse[k], i);
+                if (betterValue != worseValue)
+                {
+                    issues[entries] = i;
+                    betterValues[entries] = betterValue;
+                    worseValues[entries] = worseValue;
+                    entries++;
+                }
+            }
+            if (!seen.add(new Difference(issues, betterValues, worseValues, first, entries)))
+            {
+                entries = first;
+                continue;
+            }
+            size++;
+            start[size] = entries;
+        }
+
+        return new SparseComparisons(n, size, Arrays.copyOf(start, size + 1), Arrays.copyOf(issues, entries),
+                Arrays.copyOf(betterValues, entries), Arrays.copyOf(worseValues, entries));
+    }
+
+    /**
+     * @return number of comparisons left
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @return number of comparisons in the ranking before the reduction
+     */
+    public int getInputCount()
+    {
+        return inputCount;
+    }
+
+    /**
+     * @param k
+     * @return number of issues where the bids of comparison k differ
+     */
+    public int getLength(int k)
+    {
+        return start[k + 1] - start[k];
+    }
+
+    /**
+     * @param k comparison
+     * @param t entry, below getLength(k)
+     * @return issue ordinal of the entry
+     */
+    public int getIssue(int k, int t)
+    {
+        return issues[start[k] + t];
+    }
+
+    /**
+     * @param k comparison
+     * @param t entry, below getLength(k)
+     * @return value ordinal of the better bid at the issue of the entry
+     */
+    public int getBetterValue(int k, int t)
+    {
+        return betterValues[start[k] + t];
+    }
+
+    /**
+     * @param k comparison
+     * @param t entry, below getLength(k)
+     * @return value ordinal of the worse bid at the issue of the entry
+     */
+    public int getWorseValue(int k, int t)
+    {
+        return worseValues[start[k] + t];
+    }
+
+    @Override
+    public String toString()
+    {
+        return size + " of " + inputCount + " comparisons, " + start[size] + " differing issues";
+    }
+
+    /**
+     * the entries of one comparison, for finding duplicates
+     */
+    private static class Difference {
+        private final int[] data;
+        private final int hash;
+
+        private Difference(int[] issues, int[] betterValues, int[] worseValues, int from, int to)
+        {
+            data = new int[3 * (to - from)];
+            for (int e = from; e < to; e++)
+            {
+                data[3 * (e - from)] = issues[e];
+                data[3 * (e - from) + 1] = betterValues[e];
+                data[3 * (e - from) + 2] = worseValues[e];
+            }
+            hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Difference && Arrays.equals(data, ((Difference) o).data);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package group29;
+
+import java.util.Arrays;
+
+/**
+ * Branch and bound search over an additive utility space, without enumerating the outcome space.
+ *
+ * The values of every issue are visited from the highest to the lowest contribution. A partial bid is
+ * dropped as soon as its utility plus the best contribution of every issue not fixed yet cannot reach the
+ * threshold, and because values are sorted, the rest of the values of that issue are dropped with it.
+ * The cost is proportional to the number of bids found, not to the size of the domain.
+ */
+public class ThresholdBidSearch {
+
+    //slack on the optimistic bound so rounding never prunes a bid that is exactly on the threshold
+    private static final double BOUND_SLACK = 1e-12;
+
+    private final DomainIndex domainIndex;
+    //order[i][p] is the value ordinal with the p-th highest contribution of issue i
+    private final int[][] order;
+    private final double[][] contributions;
+    //bestBelow[i] is the best possible sum of issues 0 .. i-1
+    private final double[] bestBelow;
+
+    public ThresholdBidSearch(UtilityTable utilityTable)
+    {
+        this.domainIndex = utilityTable.getDomainIndex();
+        int issueCount = domainIndex.getNumberOfIssues();
+        this.order = new int[issueCount][];
+        this.contributions = new double[issueCount][];
+        this.bestBelow = new double[issueCount + 1];
+
+        for (int i = 0; i < issueCount; i++)
+        {
+            int valueCount = domainIndex.getNumberOfValues(i);
+            Integer[] values = new Integer[valueCount];
+            for (int v = 0; v < valueCount; v++)
+            {
+                values[v] = v;
+            }
+            final int issue = i;
+            Arrays.sort(values, (v1, v2) -> Double.compare(utilityTable.getContribution(issue, v2), utilityTable.getContribution(issue, v1)));
+
+            order[i] = new int[valueCount];
+            contributions[i] = new double[valueCount];
+            for (int p = 0; p < valueCount; p++)
+            {
+                order[i][p] = values[p];
+                contributions[i][p] = utilityTable.getContribution(i, values[p]);
+            }
+            bestBelow[i + 1] = bestBelow[i] + contributions[i][0];
+        }
+    }
+
+    /**
+     * every bid with utility not lower than threshold
+     * @param threshold
+     * @return bids from high to low utility
+     */
+    public ScoredBids atLeast(double threshold)
+    {
+        ScoredBids result = new ScoredBids();
+        collect(domainIndex.getNumberOfIssues() - 1, 0, 0.0, threshold, result);
+        result.sortDescending();
+        return result;
+    }
+
+    /**
+     * the k bids with the highest utility
+     * @param k
+     * @return bids from high to low utility
+     */
+    public ScoredBids top(int k)
+    {
+        return top(k, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * the k bids with the highest utility among the bids not lower than threshold
+     * @param k
+     * @param threshold
+     * @return bids from high to low utility
+     */
+    public ScoredBids top(int k, double threshold)
+    {
+        TopK topK = new TopK(k, threshold);
+        if (k > 0)
+        {
+            topK.search(domainIndex.getNumberOfIssues() - 1, 0, 0.0);
+        }
+        BidHeap heap = topK.heap;
+        ScoredBids result = new ScoredBids(heap.size());
+        for (int i = 0; i < heap.size(); i++)
+        {
+            result.add(heap.getId(i), heap.getScore(i));
+        }
+        result.sortDescending();
+        return result;
+    }
+
+    /*
+     * Issues are fixed from the last to the first so the partial sum is built in the same order as
+     * UtilityTable.getUtility, and the utility of a complete bid is bit for bit the same.
+     */
+    private void collect(int issue, long bidId, double partial, double threshold, ScoredBids result)
+    {
+        if (issue < 0)
+        {
+            if (partial >= threshold)
+            {
+                result.add(bidId, partial);
+            }
+            return;
+        }
+        double[] issueContributions = contributions[issue];
+        for (int p = 0; p < issueContributions.length; p++)
+        {
+            double utility = partial + issueContributions[p];
+            if (utility + bestBelow[issue] < threshold - BOUND_SLACK)
+            {
+                //the remaining values of this issue are even lower
+                return;
+            }
+            collect(issue - 1, bidId + order[issue][p] * domainIndex.getStride(issue), utility, threshold, result);
+        }
+    }
+
+    /**
+     * search that keeps the best bids found so far in a BidHeap, the worst kept bid is the pruning bound
+     */
+    private class TopK {
+        private final double threshold;
+        //equal utilities prefer the higher id, like ScoredBids.sortDescending
+        private final BidHeap heap;
+
+        private TopK(int k, double threshold)
+        {
+            this.threshold = threshold;
+            this.heap = new BidHeap(k, false);
+        }
+
+        private double bound()
+        {
+            return heap.isFull() ? Math.max(threshold, heap.minScore()) : threshold;
+        }
+
+        private void search(int issue, long bidId, double partial)
+        {
+            if (issue < 0)
+            {
+                if (partial >= threshold)
+                {
+                    heap.offer(bidId, partial);
+                }
+                return;
+            }
+            double[] issueContributions = contributions[issue];
+            for (int p = 0; p < issueContributions.length; p++)
+            {
+                double utility = partial + issueContributions[p];
+                if (utility + bestBelow[issue] < bound() - BOUND_SLACK)
+                {
+                    return;
+                }
+                search(issue - 1, bidId + order[issue][p] * domainIndex.getStride(issue), utility);
+            }
+        }
+    }
+}
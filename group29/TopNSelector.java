@@ -0,0 +1,242 @@
+package group29;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Selects the indexes of the N highest scores of a float array with a bounded primitive min heap (BidHeap),
+ * O(length * log N) time and no allocation per element.
+ * Equal scores prefer the lower index, so the result does not depend on the parallel split.
+ */
+public class TopNSelector {
+
+    //elements per chunk in parallel mode
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * @param scores
+     * @param n
+     * @return indexes of the n highest scores, from high to low
+     */
+    public static int[] select(float[] scores, int n)
+    {
+        return select(scores, n, false);
+    }
+
+    /**
+     * @param scores
+     * @param n
+     * @param parallel select per chunk in parallel and merge the chunk winners, in the pool of Parallelism
+     * @return indexes of the n highest scores, from high to low
+     */
+    public static int[] select(float[] scores, int n, boolean parallel)
+    {
+        n = Math.min(n, scores.length);
+        if (n <= 0)
+        {
+            return new int[0];
+        }
+
+        BidHeap heap = new BidHeap(n, true);
+        int chunks = (scores.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (!parallel || chunks < 2)
+        {
+            for (int i = 0; i < scores.length; i++)
+            {
+                heap.offer(i, scores[i]);
+            }
+        }
+        else
+        {
+            final int size = n;
+            BidHeap[] chunkHeaps = Parallelism.call(() -> IntStream.range(0, chunks).parallel().mapToObj(c -> {
+                BidHeap chunkHeap = new BidHeap(size, true);
+                int end = Math.min(scores.length, (c + 1) * CHUNK_SIZE);
+                for (int i = c * CHUNK_SIZE; i < end; i++)
+                {
+                    chunkHeap.offer(i, scores[i]);
+                }
+                return chunkHeap;
+            }).toArray(BidHeap[]::new));
+            for (BidHeap chunkHeap : chunkHeaps)
+            {
+                merge(heap, chunkHeap);
+            }
+        }
+        long[] best = heap.drainDescending();
+        int[] result = new int[best.length];
+        for (int i = 0; i < best.length; i++)
+        {
+            result[i] = (int) best[i];
+        }
+        return result;
+    }
+
+    /**
+     * offer every pair of from to into
+     * @param into
+     * @param from
+     */
+    private static void merge(BidHeap into, BidHeap from)
+    {
+        for (int i = 0; i < from.size(); i++)
+        {
+            into.offer(from.getId(i), from.getScore(i));
+        }
+    }
+
+    /**
+     * The n best bids of the whole outcome space under additive opponent scores, by branch and bound instead of
+     * walking the outcome space, for domains too large to keep an array of all scores.
+     *
+     * Issues are fixed from the first to the last, values of an issue from the highest to the lowest contribution.
+     * A partial bid is dropped when its utility plus the best contribution of every issue not fixed yet, for the
+     * opponent that values it least, cannot beat the worst of the n bids kept so far. The bound is summed in the
+     * same float order as JointOpponentSnapshot.getUtility, so it is never below the score of a bid under it.
+     * On an equal bound a partial bid is only followed if its lowest id beats the worst kept id, so flat scores
+     * cost no more than n bids. Equal scores prefer the lower id, like select.
+     * @param scores
+     * @param n
+     * @return ids of the n best bids, from high to low score
+     */
+    public static long[] select(JointOpponentSnapshot scores, int n)
+    {
+        DomainIndex domainIndex = scores.getDomainIndex();
+        int capacity = (int) Math.min(n, domainIndex.size());
+        if (capacity <= 0)
+        {
+            return new long[0];
+        }
+        AdditiveSearch search = new AdditiveSearch(scores, capacity);
+        search.search(0, 0);
+        return search.heap.drainDescending();
+    }
+
+    /**
+     * depth first branch and bound over the opponent value tables, see select(JointOpponentSnapshot, int)
+     */
+    private static class AdditiveSearch {
+        private final DomainIndex domainIndex;
+        private final int issueCount;
+        private final int parties;
+        //contributions[issue][p * parties + party] of the value order[issue][p]
+        private final int[][] order;
+        private final float[][] contributions;
+        //best[issue][party] is the highest contribution of the issue for the party
+        private final float[][] best;
+        //partial[issue][party] is the utility of the issues before issue
+        private final float[][] partial;
+        private final BidHeap heap;
+
+        private AdditiveSearch(JointOpponentSnapshot scores, int capacity)
+        {
+            this.domainIndex = scores.getDomainIndex();
+            this.issueCount = domainIndex.getNumberOfIssues();
+            //without opponents every bid scores 0, the bound is the same for every party
+            this.parties = Math.max(scores.getParties(), 1);
+            boolean none = scores.getParties() == 0;
+            this.order = new int[issueCount][];
+            this.contributions = new float[issueCount][];
+            this.best = new float[issueCount][parties];
+            this.partial = new float[issueCount + 1][parties];
+            this.heap = new BidHeap(capacity, true);
+
+            for (int i = 0; i < issueCount; i++)
+            {
+                int valueCount = domainIndex.getNumberOfValues(i);
+                float[] lowest = new float[valueCount];
+                Integer[] values = new Integer[valueCount];
+                for (int v = 0; v < valueCount; v++)
+                {
+                    values[v] = v;
+                    lowest[v] = Float.POSITIVE_INFINITY;
+                    for (int party = 0; party < parties; party++)
+                    {
+                        lowest[v] = Math.min(lowest[v], none ? 0 : scores.getContribution(i, v, party));
+                    }
+                }
+                //stable, equal values keep the lower ordinal first so the lower ids are found first
+                Arrays.sort(values, (v1, v2) -> Float.compare(lowest[v2], lowest[v1]));
+
+                order[i] = new int[valueCount];
+                contributions[i] = new float[valueCount * parties];
+                Arrays.fill(best[i], Float.NEGATIVE_INFINITY);
+                for (int p = 0; p < valueCount; p++)
+                {
+                    order[i][p] = values[p];
+                    for (int party = 0; party < parties; party++)
+                    {
+                        float contribution = none ? 0 : scores.getContribution(i, values[p], party);
+                        contributions[i][p * parties + party] = contribution;
+                        best[i][party] = Math.max(best[i][party], contribution);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param issue next issue to fix
+         * @param bidId id of the issues fixed so far, the others at ordinal 0
+         */
+        private void search(int issue, long bidId)
+        {
+            if (issue == issueCount)
+            {
+                heap.offer(bidId, lowest(partial[issue]));
+                return;
+            }
+            float[] before = partial[issue];
+            float[] after = partial[issue + 1];
+            long stride = domainIndex.getStride(issue);
+            for (int p = 0; p < order[issue].length; p++)
+            {
+                for (int party = 0; party < parties; party++)
+                {
+                    float contribution = contributions[issue][p * parties + party];
+                    //the first issue is not added to 0, like the scratch sums of JointOpponentSnapshot
+                    after[party] = issue == 0 ? contribution : before[party] + contribution;
+                }
+                long child = bidId + order[issue][p] * stride;
+                if (heap.isFull())
+                {
+                    double bound = bound(issue + 1, after);
+                    if (bound < heap.minScore() || (bound == heap.minScore() && child > heap.minId()))
+                    {
+                        continue;
+                    }
+                }
+                search(issue + 1, child);
+            }
+        }
+
+        /**
+         * @param issue first issue not fixed
+         * @param utilities utility of the fixed issues per party
+         * @return highest score any bid with these issues fixed can have
+         */
+        private float bound(int issue, float[] utilities)
+        {
+            float bound = Float.POSITIVE_INFINITY;
+            for (int party = 0; party < parties; party++)
+            {
+                float utility = utilities[party];
+                for (int i = issue; i < issueCount; i++)
+                {
+                    utility += best[i][party];
+                }
+                bound = Math.min(bound, utility);
+            }
+            return bound;
+        }
+
+        private float lowest(float[] utilities)
+        {
+            float lowest = utilities[0];
+            for (int party = 1; party < parties; party++)
+            {
+                lowest = Math.min(lowest, utilities[party]);
+            }
+            return lowest;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package group29;
+
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * An AdditiveUtilitySpace compiled into flat tables, table[issue][value] = weight * evaluation.
+ * The utility of a bid is then the sum of one table entry per issue,
+ * no evaluator objects or hash lookups are touched on the hot path.
+ */
+public class UtilityTable {
+
+    private final DomainIndex domainIndex;
+    private final double[][] table;
+
+    public UtilityTable(AdditiveUtilitySpace additiveUtilitySpace, DomainIndex domainIndex)
+    {
+        this.domainIndex = domainIndex;
+        int issueCount = domainIndex.getNumberOfIssues();
+        this.table = new double[issueCount][];
+        for (int i = 0; i < issueCount; i++)
+        {
+            int issueNumber = domainIndex.getIssue(i).getNumber();
+            double weight = additiveUtilitySpace.getWeight(issueNumber);
+            EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
+            table[i] = new double[domainIndex.getNumberOfValues(i)];
+            for (int v = 0; v < table[i].length; v++)
+            {
+                ValueDiscrete valueDiscrete = domainIndex.getValue(i, v);
+                try {
+                    table[i][v] = weight * evaluatorDiscrete.getEvaluation(valueDiscrete);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Cannot evaluate " + valueDiscrete + " of issue " + issueNumber, e);
+                }
+            }
+        }
+    }
+
+    public DomainIndex getDomainIndex()
+    {
+        return domainIndex;
+    }
+
+    /**
+     * weighted evaluation of one value
+     * @param issue issue ordinal
+     * @param value value ordinal
+     * @return
+     */
+    public double getContribution(int issue, int value)
+    {
+        return table[issue][value];
+    }
+
+    public double getUtility(int[] ordinals)
+    {
+        //same summation order as getUtility(long) so both give the identical double
+        double utility = 0;
+        for (int i = table.length - 1; i >= 0; i--)
+        {
+            utility += table[i][ordinals[i]];
+        }
+        return utility;
+    }
+
+    public double getUtility(long bidId)
+    {
+        double utility = 0;
+        for (int i = table.length - 1; i >= 0; i--)
+        {
+            double[] values = table[i];
+            utility += values[(int) (bidId % values.length)];
+            bidId /= values.length;
+        }
+        return utility;
+    }
+
+    public double[] getUtilities(long[] bids)
+    {
+        double[] utilities = new double[bids.length];
+        for (int i = 0; i < bids.length; i++)
+        {
+            utilities[i] = getUtility(bids[i]);
+        }
+        return utilities;
+    }
+}
@@ -0,0 +1,47 @@
+package group29;
+
+import genius.core.Domain;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AdditiveUtilitySpace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * estimateUsingBidRanks with the pure Java estimators, the Gurobi ones need the native library.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EstimationBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public long outcomes;
+
+    @Param({"100", "1000"})
+    public int rankingSize;
+
+    @Param({"interior-point", "borda"})
+    public String estimator;
+
+    private DomainIndex domainIndex;
+    private BidRanking bidRanking;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        SyntheticGenerator generator = new SyntheticGenerator(4);
+        Domain domain = generator.domainOfSize(outcomes);
+        domainIndex = new DomainIndex(domain);
+        bidRanking = generator.ranking(domainIndex, generator.utilitySpace(domain), rankingSize);
+    }
+
+    @Benchmark
+    public AdditiveUtilitySpace estimateUsingBidRanks()
+    {
+        PreferenceEstimator preferenceEstimator = estimator.equals("borda") ? new BordaEstimator() : new InteriorPointEstimator();
+        MyAdditiveUtilitySpaceFactory factory = new MyAdditiveUtilitySpaceFactory(domainIndex, preferenceEstimator);
+        factory.estimateUsingBidRanks(bidRanking);
+        return factory.getUtilitySpace();
+    }
+}
@@ -0,0 +1,124 @@
+package group29;
+
+import genius.core.Domain;
+import genius.core.utility.AdditiveUtilitySpace;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JonnyBlack hot paths: walking the outcome space (what generateAllBid did), ranking the feasible bids,
+ * the opponent's best N bids and a full makeAnOffer, on its own and after receiving an offer like in a session.
+ * Every makeAnOffer plays the same round between two recomputes, see Round.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JonnyBlackBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    public long outcomes;
+
+    //received offers, cycled through
+    private static final int RECEIVED = 1 << 10;
+    //rounds played before the measured one, it is not a round of the recompute of every 10 rounds
+    private static final int ROUNDS = 25;
+
+    private DomainIndex domainIndex;
+    private BidCounter bidCounter;
+    private OpponentModel opponentModel;
+    private JonnyBlack jonnyBlack;
+    private long[] received;
+    private int next;
+    //state of JonnyBlack after ROUNDS rounds
+    private JonnyBlack.OfferState saved;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        SyntheticGenerator generator = new SyntheticGenerator(1);
+        Domain domain = generator.domainOfSize(outcomes);
+        domainIndex = new DomainIndex(domain);
+        AdditiveUtilitySpace utilitySpace = generator.utilitySpace(domain);
+
+        bidCounter = new BidCounter(domainIndex);
+        bidCounter.init();
+        opponentModel = new OpponentModel(domainIndex, bidCounter);
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++)
+        {
+            bidCounter.addBid((long) (random.nextDouble() * domainIndex.size()));
+        }
+        opponentModel.update();
+        jonnyBlack = new JonnyBlack(utilitySpace, domainIndex, opponentModel);
+
+        received = new long[RECEIVED];
+        for (int i = 0; i < RECEIVED; i++)
+        {
+            received[i] = (long) (random.nextDouble() * domainIndex.size());
+        }
+
+        for (int i = 0; i < ROUNDS; i++)
+        {
+            receiveOffer();
+            jonnyBlack.makeAnOffer();
+        }
+        saved = jonnyBlack.saveState();
+    }
+
+    /**
+     * Put JonnyBlack back to the round after ROUNDS before every call, otherwise the calls would play a session
+     * on: care grows above 1, AV decays and the offers would be measured at some random round.
+     */
+    @State(Scope.Thread)
+    public static class Round {
+
+        @Setup(Level.Invocation)
+        public void restore(JonnyBlackBenchmark benchmark)
+        {
+            benchmark.jonnyBlack.restoreState(benchmark.saved);
+        }
+    }
+
+    private void receiveOffer()
+    {
+        bidCounter.addBid(received[next++ & (RECEIVED - 1)]);
+        opponentModel.update();
+    }
+
+    @Benchmark
+    public void enumerateAllBids(Blackhole blackhole)
+    {
+        new BidEnumerator(domainIndex).forEachRemaining((long bid, int[] ordinals) -> blackhole.consume(ordinals[0]));
+    }
+
+    @Benchmark
+    public void rankFeasibleBids()
+    {
+        jonnyBlack.rankFeasibleBids();
+    }
+
+    @Benchmark
+    public long[] opponentBestNBids()
+    {
+        return jonnyBlack.getOpponentBestNBidIndex(200);
+    }
+
+    @Benchmark
+    public long makeAnOffer(Round round)
+    {
+        return jonnyBlack.makeAnOffer();
+    }
+
+    /**
+     * every round of a session receives an offer first, which updates the opponent model
+     */
+    @Benchmark
+    public long makeAnOfferAfterReceivedOffer(Round round)
+    {
+        receiveOffer();
+        return jonnyBlack.makeAnOffer();
+    }
+}
@@ -0,0 +1,66 @@
+package group29;
+
+import genius.core.Bid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per received bid costs: counting it, refreshing the opponent model, and scoring a bid with the model.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OpponentModelBenchmark {
+
+    //power of 2, indexes wrap with a mask
+    private static final int BIDS = 1024;
+
+    @Param({"1000", "100000", "10000000"})
+    public long outcomes;
+
+    private BidCounter bidCounter;
+    private OpponentModel opponentModel;
+    private long[] ids;
+    private Bid[] bids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        DomainIndex domainIndex = new DomainIndex(new SyntheticGenerator(1).domainOfSize(outcomes));
+        bidCounter = new BidCounter(domainIndex);
+        bidCounter.init();
+        opponentModel = new OpponentModel(domainIndex, bidCounter);
+        Random random = new Random(3);
+        ids = new long[BIDS];
+        bids = new Bid[BIDS];
+        for (int i = 0; i < BIDS; i++)
+        {
+            ids[i] = (long) (random.nextDouble() * domainIndex.size());
+            bids[i] = domainIndex.toBid(ids[i]);
+            bidCounter.addBid(ids[i]);
+        }
+        opponentModel.update();
+    }
+
+    @Benchmark
+    public void bidCounterAddBid()
+    {
+        bidCounter.addBid(bids[next++ & (BIDS - 1)]);
+    }
+
+    @Benchmark
+    public void opponentModelUpdate()
+    {
+        opponentModel.addBid(bids[next++ & (BIDS - 1)]);
+        opponentModel.update();
+    }
+
+    @Benchmark
+    public float opponentModelGetUtility()
+    {
+        return opponentModel.getUtility(ids[next++ & (BIDS - 1)]);
+    }
+}
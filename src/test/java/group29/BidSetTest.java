@@ -0,0 +1,101 @@
+package group29;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BidSet against a HashSet of the same ids.
+ */
+public class BidSetTest {
+
+    @Test
+    public void sparseIdsOverManyContainers()
+    {
+        Random random = new Random(1);
+        BidSet set = new BidSet();
+        HashSet<Long> expected = new HashSet<Long>();
+        for (int n = 0; n < 20000; n++)
+        {
+            //ids of a domain of 10^12 outcomes, a few per container
+            long bid = (long) (random.nextDouble() * 1e12);
+            assertEquals(expected.add(bid), set.add(bid));
+            long probe = (long) (random.nextDouble() * 1e12);
+            assertEquals(expected.contains(probe), set.contains(probe));
+        }
+        for (long bid : expected)
+        {
+            assertTrue(set.contains(bid));
+            assertFalse(set.add(bid));
+        }
+    }
+
+    @Test
+    public void arrayTurnsIntoBitmapAt4096()
+    {
+        //all ids in one container, in random order, the container passes 4096 ids on the way
+        long key = 7L << 16;
+        List<Long> bids = new ArrayList<Long>();
+        for (int low = 0; low < 1 << 16; low += 3)
+        {
+            bids.add(key + low);
+        }
+        Collections.shuffle(bids, new Random(2));
+        BidSet set = new BidSet();
+        HashSet<Long> expected = new HashSet<Long>();
+        Random random = new Random(3);
+        for (int n = 0; n < bids.size(); n++)
+        {
+            long bid = bids.get(n);
+            assertTrue(set.add(bid));
+            expected.add(bid);
+            //before, at and after the transition every id of the container is checked
+            if (n >= 4090 && n <= 4100)
+            {
+                for (int low = 0; low < 1 << 16; low++)
+                {
+                    assertEquals(expected.contains(key + low), set.contains(key + low));
+                }
+            }
+            long probe = key + random.nextInt(1 << 16);
+            assertEquals(expected.contains(probe), set.contains(probe));
+            assertFalse(set.add(bid));
+        }
+        //the neighbouring containers stay empty
+        assertFalse(set.contains(key - 1));
+        assertFalse(set.contains(key + (1 << 16)));
+    }
+
+    @Test
+    public void copyDoesNotShareContainers()
+    {
+        BidSet set = new BidSet();
+        for (long bid = 0; bid < 5000; bid++)
+        {
+            set.add(bid * 2);
+        }
+        set.add(1L << 40);
+        BidSet copy = set.copy();
+        set.add(1);
+        copy.add(3);
+        set.add((1L << 40) + 1);
+        assertTrue(set.contains(1));
+        assertFalse(set.contains(3));
+        assertTrue(copy.contains(3));
+        assertFalse(copy.contains(1));
+        assertFalse(copy.contains((1L << 40) + 1));
+        for (long bid = 0; bid < 5000; bid++)
+        {
+            assertTrue(copy.contains(bid * 2));
+        }
+        assertTrue(copy.contains(1L << 40));
+    }
+}
@@ -0,0 +1,110 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.UncertainAdditiveUtilitySpace;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * InteriorPointEstimator on rankings of an additive ground truth, which a max margin estimate must reproduce.
+ */
+public class InteriorPointEstimatorTest {
+
+    private static final double TOLERANCE = 1e-4;
+
+    @Test
+    public void estimateKeepsTheOrderOfTheRanking()
+    {
+        int[][] domains = {{4}, {2, 3}, {3, 4, 2, 3}, {2, 2, 2, 2, 2}};
+        for (int d = 0; d < domains.length; d++)
+        {
+            SyntheticGenerator generator = new SyntheticGenerator(d);
+            Domain domain = generator.domain(domains[d]);
+            DomainIndex domainIndex = new DomainIndex(domain);
+            UncertainAdditiveUtilitySpace truth = generator.utilitySpace(domain);
+            BidRanking ranking = generator.ranking(domainIndex, truth, 30);
+
+            PreferenceEstimate estimate = new InteriorPointEstimator().estimate(domainIndex, ranking);
+            assertTrue(estimate.isOptimal());
+            assertNormalized(estimate);
+            //bid order goes from low to high, every neighbour is ranked at least as high as the one before
+            List<Bid> bidOrder = ranking.getBidOrder();
+            for (int p = 1; p < bidOrder.size(); p++)
+            {
+                double worse = utility(estimate, domainIndex, bidOrder.get(p - 1));
+                double better = utility(estimate, domainIndex, bidOrder.get(p));
+                assertTrue(better >= worse - TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void estimateHasTheLargestMargin()
+    {
+        //one issue ranked v0 < v1 < v2: the margin is largest with evaluations 0, 1/2 and 1
+        SyntheticGenerator generator = new SyntheticGenerator(1);
+        DomainIndex domainIndex = new DomainIndex(generator.domain(new int[]{3}));
+        List<Bid> bidOrder = new ArrayList<Bid>();
+        for (long id = 0; id < 3; id++)
+        {
+            bidOrder.add(domainIndex.toBid(id));
+        }
+        PreferenceEstimate estimate = new InteriorPointEstimator().estimate(domainIndex, new BidRanking(bidOrder, 0, 1));
+        assertEquals(1.0, estimate.getWeight(0), TOLERANCE);
+        assertEquals(0.0, estimate.getUtility(0, 0), TOLERANCE);
+        assertEquals(0.5, estimate.getUtility(0, 1), TOLERANCE);
+        assertEquals(1.0, estimate.getUtility(0, 2), TOLERANCE);
+    }
+
+    @Test
+    public void outOfTimeFallsBackToBorda()
+    {
+        SyntheticGenerator generator = new SyntheticGenerator(2);
+        Domain domain = generator.domain(new int[]{3, 4, 2});
+        DomainIndex domainIndex = new DomainIndex(domain);
+        BidRanking ranking = generator.ranking(domainIndex, generator.utilitySpace(domain), 20);
+        PreferenceEstimate estimate = new InteriorPointEstimator(0).estimate(domainIndex, ranking);
+        assertFalse(estimate.isOptimal());
+        assertTrue(estimate.sameAs(new BordaEstimator().estimate(domainIndex, ranking)));
+    }
+
+    /**
+     * weights sum to 1, evaluations are between 0 and 1 and the best value of an issue that matters evaluates to 1
+     */
+    private static void assertNormalized(PreferenceEstimate estimate)
+    {
+        double totalWeight = 0;
+        for (int i = 0; i < estimate.getNumberOfIssues(); i++)
+        {
+            totalWeight += estimate.getWeight(i);
+            double best = 0;
+            for (int v = 0; v < estimate.getNumberOfValues(i); v++)
+            {
+                assertTrue(estimate.getUtility(i, v) >= 0 && estimate.getUtility(i, v) <= 1);
+                best = Math.max(best, estimate.getUtility(i, v));
+            }
+            assertEquals(1.0, best, 0.0);
+        }
+        assertEquals(1.0, totalWeight, 1e-9);
+    }
+
+    private static double utility(PreferenceEstimate estimate, DomainIndex domainIndex, Bid bid)
+    {
+        int[] ordinals = new int[domainIndex.getNumberOfIssues()];
+        domainIndex.decode(domainIndex.encode(bid), ordinals);
+        double utility = 0;
+        for (int i = 0; i < ordinals.length; i++)
+        {
+            utility += estimate.getWeight(i) * estimate.getUtility(i, ordinals[i]);
+        }
+        return utility;
+    }
+}
@@ -0,0 +1,95 @@
+package group29;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * OfferIndex against scanning the positions in order.
+ */
+public class OfferIndexTest {
+
+    @Test
+    public void firstAtLeastFindsTheFirstPositionOfAScan()
+    {
+        Random random = new Random(1);
+        OfferIndex index = new OfferIndex();
+        //the same index is reset to every size, larger and smaller ones
+        for (int size : new int[]{0, 1, 2, 3, 7, 8, 9, 100, 33, 1000, 5})
+        {
+            float[] utilities = fill(index, size, random);
+            for (int q = 0; q < 200; q++)
+            {
+                int from = random.nextInt(size + 2);
+                int to = random.nextInt(size + 2);
+                double threshold = random.nextInt(12) / 10.0;
+                assertEquals(scan(utilities, from, to, threshold), index.firstAtLeast(from, to, threshold));
+            }
+            assertEquals(size, index.size());
+        }
+    }
+
+    @Test
+    public void removedPositionsAreSkipped()
+    {
+        Random random = new Random(2);
+        OfferIndex index = new OfferIndex();
+        int size = 300;
+        float[] utilities = fill(index, size, random);
+        for (int r = 0; r < size; r++)
+        {
+            int position = random.nextInt(size);
+            index.remove(position);
+            utilities[position] = Float.NEGATIVE_INFINITY;
+            int from = random.nextInt(size);
+            double threshold = random.nextInt(10) / 10.0;
+            assertEquals(scan(utilities, from, size, threshold), index.firstAtLeast(from, size, threshold));
+            assertEquals(scan(utilities, 0, size, 0), index.firstAtLeast(0, size, 0));
+        }
+    }
+
+    @Test
+    public void thresholdIsInclusive()
+    {
+        OfferIndex index = new OfferIndex();
+        index.reset(3);
+        index.set(0, 0.25f);
+        index.set(1, 0.5f);
+        index.set(2, 0.5f);
+        index.build();
+        assertEquals(1, index.firstAtLeast(0, 3, 0.5f));
+        assertEquals(2, index.firstAtLeast(2, 3, 0.5f));
+        assertEquals(-1, index.firstAtLeast(0, 1, 0.5f));
+        assertEquals(-1, index.firstAtLeast(0, 3, Math.nextUp(0.5f)));
+    }
+
+    /**
+     * @return the utilities set, in steps of 0.1 so that many of them are equal
+     */
+    private static float[] fill(OfferIndex index, int size, Random random)
+    {
+        float[] utilities = new float[size];
+        index.reset(size);
+        for (int i = 0; i < size; i++)
+        {
+            utilities[i] = random.nextInt(11) / 10f;
+            index.set(i, utilities[i]);
+        }
+        index.build();
+        return utilities;
+    }
+
+    private static int scan(float[] utilities, int from, int to, double threshold)
+    {
+        for (int i = from; i < Math.min(to, utilities.length); i++)
+        {
+            if (utilities[i] >= threshold)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
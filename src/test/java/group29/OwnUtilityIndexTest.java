@@ -0,0 +1,75 @@
+package group29;
+
+import genius.core.Domain;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OwnUtilityIndex against scoring and sorting every bid of small synthetic domains.
+ */
+public class OwnUtilityIndexTest {
+
+    @Test
+    public void sortsEveryBidLikeTheThresholdSearch()
+    {
+        int[][] domains = {{1}, {6}, {2, 3, 4}, {5, 1, 2, 3}, {4, 4, 4, 4, 4}};
+        for (int d = 0; d < domains.length; d++)
+        {
+            UtilityTable table = ThresholdBidSearchTest.table(domains[d], d);
+            ScoredBids all = ThresholdBidSearchTest.allBids(table);
+            OwnUtilityIndex index = new OwnUtilityIndex(table);
+            assertEquals(all.size(), index.size());
+            assertArrayEquals(all.toBidArray(), index.getBids());
+            assertArrayEquals(all.toUtilityArray(), index.getUtilities(), 0.0);
+        }
+    }
+
+    @Test
+    public void countAtLeastEndsTheFeasiblePrefix()
+    {
+        UtilityTable table = ThresholdBidSearchTest.table(new int[]{3, 4, 2, 3}, 7);
+        OwnUtilityIndex index = new OwnUtilityIndex(table);
+        ThresholdBidSearch search = new ThresholdBidSearch(table);
+        double[] utilities = index.getUtilities();
+        for (int k = 0; k < utilities.length; k++)
+        {
+            double threshold = utilities[k];
+            assertEquals(search.atLeast(threshold).size(), index.countAtLeast(threshold));
+            //the search stops at the size given
+            assertEquals(Math.min(k / 2, index.countAtLeast(threshold)),
+                    OwnUtilityIndex.countAtLeast(utilities, k / 2, threshold));
+        }
+        assertEquals(utilities.length, index.countAtLeast(Double.NEGATIVE_INFINITY));
+        assertEquals(0, index.countAtLeast(utilities[0] + 1e-9));
+    }
+
+    @Test
+    public void sharesTheIndexOfEqualTables()
+    {
+        //two sessions on the same domain and profile, each with its own Domain object
+        UtilityTable first = ThresholdBidSearchTest.table(new int[]{4, 3, 5}, 11);
+        UtilityTable second = ThresholdBidSearchTest.table(new int[]{4, 3, 5}, 11);
+        UtilityTable other = ThresholdBidSearchTest.table(new int[]{4, 3, 5}, 12);
+        OwnUtilityIndex index = OwnUtilityIndex.of(first);
+        assertSame(index, OwnUtilityIndex.of(second));
+        assertNotSame(index, OwnUtilityIndex.of(other));
+        assertArrayEquals(new OwnUtilityIndex(other).getBids(), OwnUtilityIndex.of(other).getBids());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesDomainsAboveMaxSize()
+    {
+        SyntheticGenerator generator = new SyntheticGenerator(1);
+        Domain domain = generator.domain(23, 2);
+        DomainIndex domainIndex = new DomainIndex(domain);
+        assertTrue(domainIndex.size() > OwnUtilityIndex.MAX_SIZE);
+        assertFalse(OwnUtilityIndex.fits(domainIndex));
+        new OwnUtilityIndex(new UtilityTable(generator.utilitySpace(domain), domainIndex));
+    }
+}
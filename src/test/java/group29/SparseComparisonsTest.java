@@ -0,0 +1,124 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.OutcomeComparison;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SparseComparisons against the differences of the compared bids worked out issue by issue.
+ */
+public class SparseComparisonsTest {
+
+    @Test
+    public void keepsEveryDistinctDifferenceOfTheRanking()
+    {
+        int[][] domains = {{2, 2, 2}, {3, 4, 2, 3}, {5, 5}};
+        for (int d = 0; d < domains.length; d++)
+        {
+            SyntheticGenerator generator = new SyntheticGenerator(d);
+            Domain domain = generator.domain(domains[d]);
+            DomainIndex domainIndex = new DomainIndex(domain);
+            BidRanking ranking = generator.ranking(domainIndex, generator.utilitySpace(domain), 20);
+
+            //the bids of a comparison are neighbours in the bid order, the later one is the better one
+            List<Bid> bidOrder = ranking.getBidOrder();
+            List<List<Integer>> expected = new ArrayList<List<Integer>>();
+            for (int p = 1; p < bidOrder.size(); p++)
+            {
+                List<Integer> difference = difference(domainIndex, bidOrder.get(p), bidOrder.get(p - 1));
+                if (!expected.contains(difference))
+                {
+                    expected.add(difference);
+                }
+            }
+
+            SparseComparisons comparisons = SparseComparisons.compile(domainIndex, ranking);
+            assertEquals(ranking.getPairwiseComparisons().size(), comparisons.getInputCount());
+            assertEquals(expected, differences(comparisons));
+        }
+    }
+
+    @Test
+    public void dropsSameBidsImpliedChainsAndDuplicates()
+    {
+        DomainIndex domainIndex = new DomainIndex(new SyntheticGenerator(1).domain(new int[]{3, 3}));
+        Bid b0 = bid(domainIndex, 0, 0);
+        Bid b1 = bid(domainIndex, 1, 0);
+        Bid b2 = bid(domainIndex, 1, 1);
+        Bid b3 = bid(domainIndex, 2, 2);
+        //with result -1 the second bid is the better one, otherwise the first
+        final List<OutcomeComparison> list = Arrays.asList(
+                new OutcomeComparison(b0, b1, -1),
+                new OutcomeComparison(b1, b2, -1),
+                //implied by b0 < b1 < b2
+                new OutcomeComparison(b0, b2, -1),
+                new OutcomeComparison(b2, b2, 0),
+                //b2 < b3 is not in the ranking, so b1 < b3 is not implied
+                new OutcomeComparison(b3, b1, 1),
+                //same difference as the first one
+                new OutcomeComparison(b1, b0, 1));
+        BidRanking ranking = new BidRanking(Arrays.asList(b0, b1, b2, b3), 0, 1) {
+            @Override
+            public List<OutcomeComparison> getPairwiseComparisons()
+            {
+                return list;
+            }
+        };
+
+        SparseComparisons comparisons = SparseComparisons.compile(domainIndex, ranking);
+        assertEquals(6, comparisons.getInputCount());
+        assertEquals(Arrays.asList(
+                difference(domainIndex, b1, b0),
+                difference(domainIndex, b2, b1),
+                difference(domainIndex, b3, b1)), differences(comparisons));
+        assertEquals(Arrays.asList(0, 2, 1, 1, 2, 0), differences(comparisons).get(2));
+    }
+
+    /**
+     * @return issue, better value and worse value of every issue where the bids differ
+     */
+    private static List<Integer> difference(DomainIndex domainIndex, Bid better, Bid worse)
+    {
+        List<Integer> difference = new ArrayList<Integer>();
+        for (int i = 0; i < domainIndex.getNumberOfIssues(); i++)
+        {
+            int betterValue = domainIndex.getValueOrdinal(domainIndex.encode(better), i);
+            int worseValue = domainIndex.getValueOrdinal(domainIndex.encode(worse), i);
+            if (betterValue != worseValue)
+            {
+                Collections.addAll(difference, i, betterValue, worseValue);
+            }
+        }
+        return difference;
+    }
+
+    private static List<List<Integer>> differences(SparseComparisons comparisons)
+    {
+        List<List<Integer>> differences = new ArrayList<List<Integer>>();
+        for (int k = 0; k < comparisons.size(); k++)
+        {
+            List<Integer> difference = new ArrayList<Integer>();
+            for (int t = 0; t < comparisons.getLength(k); t++)
+            {
+                Collections.addAll(difference, comparisons.getIssue(k, t), comparisons.getBetterValue(k, t),
+                        comparisons.getWorseValue(k, t));
+            }
+            differences.add(difference);
+        }
+        return differences;
+    }
+
+    private static Bid bid(DomainIndex domainIndex, int... ordinals)
+    {
+        return domainIndex.toBid(domainIndex.encode(ordinals));
+    }
+}
@@ -0,0 +1,187 @@
+package group29;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.ExperimentalUserModel;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+import genius.core.utility.UncertainAdditiveUtilitySpace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded generator of domains, ground truth profiles and bid rankings for tests and benchmarks of Agent29,
+ * no Genius XML needed. The same seed and the same calls give the same result.
+ *
+ * Nothing walks the outcome space: rankings sample bid ids through DomainIndex and only the sampled bids
+ * become Bid objects, so domains of millions of outcomes are as cheap as small ones.
+ */
+public class SyntheticGenerator {
+
+    private final Random random;
+
+    public SyntheticGenerator(long seed)
+    {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param issues
+     * @param values per issue
+     * @return domain with issues "issue1".. and values "v0"..
+     */
+    public Domain domain(int issues, int values)
+    {
+        int[] valueCounts = new int[issues];
+        Arrays.fill(valueCounts, values);
+        return domain(valueCounts);
+    }
+
+    /**
+     * @param valueCounts number of values of every issue
+     * @return domain with issues "issue1".. and values "v0"..
+     */
+    public Domain domain(int[] valueCounts)
+    {
+        DomainImpl domain = new DomainImpl("synthetic");
+        Objective root = new Objective(null, "root", 0);
+        for (int i = 0; i < valueCounts.length; i++)
+        {
+            String[] values = new String[valueCounts[i]];
+            for (int v = 0; v < values.length; v++)
+            {
+                values[v] = "v" + v;
+            }
+            root.addChild(new IssueDiscrete("issue" + (i + 1), i + 1, values, root));
+        }
+        domain.setObjectivesRoot(root);
+        return domain;
+    }
+
+    /**
+     * @param outcomes power of 10, at least 10
+     * @return domain with log10(outcomes) issues of 10 values
+     */
+    public Domain domainOfSize(long outcomes)
+    {
+        return domain((int) Math.round(Math.log10(outcomes)), 10);
+    }
+
+    /**
+     * random weights summing to 1 and random evaluations, the best value of every issue evaluates to 1
+     * @param domain
+     * @return ground truth profile
+     */
+    public UncertainAdditiveUtilitySpace utilitySpace(Domain domain)
+    {
+        DomainIndex domainIndex = new DomainIndex(domain);
+        int issueCount = domainIndex.getNumberOfIssues();
+        double[] weights = new double[issueCount];
+        double total = 0;
+        for (int i = 0; i < issueCount; i++)
+        {
+            weights[i] = random.nextDouble();
+            total += weights[i];
+        }
+
+        Map<Objective, Evaluator> evaluators = new HashMap<Objective, Evaluator>();
+        for (int i = 0; i < issueCount; i++)
+        {
+            EvaluatorDiscrete evaluator = new EvaluatorDiscrete();
+            evaluator.setWeight(weights[i] / total);
+            int best = random.nextInt(domainIndex.getNumberOfValues(i));
+            for (int v = 0; v < domainIndex.getNumberOfValues(i); v++)
+            {
+                evaluator.setEvaluationDouble(domainIndex.getValue(i, v), v == best ? 1.0 : random.nextDouble());
+            }
+            evaluators.put(domainIndex.getIssue(i), evaluator);
+        }
+        return new UncertainAdditiveUtilitySpace(domain, evaluators);
+    }
+
+    /**
+     * @param domainIndex
+     * @param utilitySpace ground truth the bids are ordered by
+     * @param size distinct bids, at most the size of the domain
+     * @return ranking of random bids from low to high utility
+     */
+    public BidRanking ranking(DomainIndex domainIndex, UncertainAdditiveUtilitySpace utilitySpace, int size)
+    {
+        UtilityTable table = new UtilityTable(utilitySpace, domainIndex);
+        long[] ids = sample(domainIndex.size(), (int) Math.min(size, domainIndex.size()));
+        ScoredBids scored = new ScoredBids(ids.length);
+        for (long id : ids)
+        {
+            scored.add(id, table.getUtility(id));
+        }
+        scored.sortDescending();
+
+        List<Bid> bidOrder = new ArrayList<Bid>(ids.length);
+        for (int k = scored.size() - 1; k >= 0; k--)
+        {
+            bidOrder.add(domainIndex.toBid(scored.getBid(k)));
+        }
+        return new BidRanking(bidOrder, scored.getUtility(scored.size() - 1), scored.getUtility(0));
+    }
+
+    /**
+     * @param domainIndex
+     * @param utilitySpace ground truth, also the real utility space of the user model
+     * @param size of the ranking
+     * @return user model as Agent29 gets it under preference uncertainty
+     */
+    public ExperimentalUserModel userModel(DomainIndex domainIndex, UncertainAdditiveUtilitySpace utilitySpace, int size)
+    {
+        return new ExperimentalUserModel(ranking(domainIndex, utilitySpace, size), utilitySpace);
+    }
+
+    /**
+     * @param range ids from 0 until range
+     * @param count at most range
+     * @return count distinct ids
+     */
+    private long[] sample(long range, int count)
+    {
+        long[] ids = new long[count];
+        if (2L * count >= range)
+        {
+            //dense, partial Fisher-Yates over all ids
+            long[] all = new long[(int) range];
+            for (int k = 0; k < all.length; k++)
+            {
+                all[k] = k;
+            }
+            for (int k = 0; k < count; k++)
+            {
+                int swap = k + random.nextInt(all.length - k);
+                long id = all[swap];
+                all[swap] = all[k];
+                all[k] = id;
+                ids[k] = id;
+            }
+            return ids;
+        }
+        //sparse, rejection of repeats
+        HashSet<Long> seen = new HashSet<Long>();
+        int k = 0;
+        while (k < count)
+        {
+            long id = (long) (random.nextDouble() * range);
+            if (seen.add(id))
+            {
+                ids[k++] = id;
+            }
+        }
+        return ids;
+    }
+}
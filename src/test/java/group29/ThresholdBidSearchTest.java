@@ -0,0 +1,141 @@
+package group29;
+
+import genius.core.Domain;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ThresholdBidSearch against scoring and sorting every bid of small synthetic domains.
+ */
+public class ThresholdBidSearchTest {
+
+    private static final int[][] DOMAINS = {{1}, {5}, {2, 3, 4}, {4, 1, 3, 2}, {3, 3, 3, 3, 3, 3}};
+
+    @Test
+    public void atLeastReturnsEveryBidOnTheThreshold()
+    {
+        for (int d = 0; d < DOMAINS.length; d++)
+        {
+            UtilityTable table = table(DOMAINS[d], d);
+            ThresholdBidSearch search = new ThresholdBidSearch(table);
+            ScoredBids all = allBids(table);
+            for (int k = 0; k < all.size(); k++)
+            {
+                //exactly on the utility of a bid, so rounding in the bound would show
+                double threshold = all.getUtility(k);
+                assertSame(prefix(all, count(all, threshold)), search.atLeast(threshold));
+            }
+            assertSame(all, search.atLeast(Double.NEGATIVE_INFINITY));
+            assertEquals(0, search.atLeast(all.getUtility(0) + 1e-9).size());
+        }
+    }
+
+    @Test
+    public void topReturnsTheBestBids()
+    {
+        for (int d = 0; d < DOMAINS.length; d++)
+        {
+            UtilityTable table = table(DOMAINS[d], d);
+            ThresholdBidSearch search = new ThresholdBidSearch(table);
+            ScoredBids all = allBids(table);
+            for (int k = 0; k <= all.size() + 1; k++)
+            {
+                assertSame(prefix(all, Math.min(k, all.size())), search.top(k));
+                double threshold = all.getUtility(all.size() / 2);
+                assertSame(prefix(all, Math.min(k, count(all, threshold))), search.top(k, threshold));
+            }
+        }
+    }
+
+    @Test
+    public void equalUtilitiesPreferTheHigherId()
+    {
+        //every value of every issue is worth the same
+        SyntheticGenerator generator = new SyntheticGenerator(1);
+        Domain domain = generator.domain(new int[]{3, 2, 4});
+        DomainIndex domainIndex = new DomainIndex(domain);
+        UtilityTable table = new UtilityTable(flat(generator, domain), domainIndex);
+        ThresholdBidSearch search = new ThresholdBidSearch(table);
+        ScoredBids all = allBids(table);
+        assertSame(all, search.atLeast(0));
+        assertSame(prefix(all, 5), search.top(5));
+        assertEquals(domainIndex.size() - 1, search.top(1).getBid(0));
+    }
+
+    /**
+     * @param valueCounts
+     * @param seed
+     * @return table of a random profile on a synthetic domain
+     */
+    static UtilityTable table(int[] valueCounts, long seed)
+    {
+        SyntheticGenerator generator = new SyntheticGenerator(seed);
+        Domain domain = generator.domain(valueCounts);
+        return new UtilityTable(generator.utilitySpace(domain), new DomainIndex(domain));
+    }
+
+    /**
+     * @param table
+     * @return every bid of the domain, sorted like ScoredBids.sortDescending
+     */
+    static ScoredBids allBids(UtilityTable table)
+    {
+        ScoredBids all = new ScoredBids();
+        for (long id = 0; id < table.getDomainIndex().size(); id++)
+        {
+            all.add(id, table.getUtility(id));
+        }
+        all.sortDescending();
+        return all;
+    }
+
+    /**
+     * @param generator
+     * @param domain
+     * @return profile where every bid has the same utility
+     */
+    private static AdditiveUtilitySpace flat(SyntheticGenerator generator, Domain domain)
+    {
+        AdditiveUtilitySpace space = generator.utilitySpace(domain);
+        DomainIndex domainIndex = new DomainIndex(domain);
+        for (int i = 0; i < domainIndex.getNumberOfIssues(); i++)
+        {
+            for (int v = 0; v < domainIndex.getNumberOfValues(i); v++)
+            {
+                EvaluatorDiscrete evaluator = (EvaluatorDiscrete) space.getEvaluator(domainIndex.getIssue(i).getNumber());
+                evaluator.setEvaluationDouble(domainIndex.getValue(i, v), 1.0);
+            }
+        }
+        return space;
+    }
+
+    private static int count(ScoredBids all, double threshold)
+    {
+        int count = 0;
+        while (count < all.size() && all.getUtility(count) >= threshold)
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private static ScoredBids prefix(ScoredBids all, int length)
+    {
+        ScoredBids prefix = new ScoredBids(length);
+        for (int k = 0; k < length; k++)
+        {
+            prefix.add(all.getBid(k), all.getUtility(k));
+        }
+        return prefix;
+    }
+
+    private static void assertSame(ScoredBids expected, ScoredBids actual)
+    {
+        assertArrayEquals(expected.toBidArray(), actual.toBidArray());
+        assertArrayEquals(expected.toUtilityArray(), actual.toUtilityArray(), 0.0);
+    }
+}
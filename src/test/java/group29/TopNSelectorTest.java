@@ -0,0 +1,99 @@
+package group29;
+
+import genius.core.AgentID;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * TopNSelector against sorting every score, equal scores prefer the lower id.
+ */
+public class TopNSelectorTest {
+
+    @Test
+    public void selectsTheHighestScoresOfAnArray()
+    {
+        Random random = new Random(1);
+        for (int length : new int[]{0, 1, 10, 1000, 200000})
+        {
+            float[] scores = new float[length];
+            for (int i = 0; i < length; i++)
+            {
+                //few distinct scores, many ties
+                scores[i] = random.nextInt(50) / 50f;
+            }
+            Integer[] sorted = new Integer[length];
+            for (int i = 0; i < length; i++)
+            {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, (i, j) -> {
+                int c = Float.compare(scores[j], scores[i]);
+                return c != 0 ? c : Integer.compare(i, j);
+            });
+            for (int n : new int[]{0, 1, 7, 200, length + 3})
+            {
+                int[] expected = new int[Math.min(n, length)];
+                for (int k = 0; k < expected.length; k++)
+                {
+                    expected[k] = sorted[k];
+                }
+                assertArrayEquals(expected, TopNSelector.select(scores, n));
+                //the chunks of the parallel mode are merged into the same result
+                assertArrayEquals(expected, TopNSelector.select(scores, n, true));
+            }
+        }
+    }
+
+    @Test
+    public void searchesTheBestBidsOfTheOpponents()
+    {
+        Random random = new Random(2);
+        int[][] domains = {{1}, {5}, {2, 3, 4}, {4, 1, 3, 2}, {3, 3, 3, 3, 3, 3}};
+        for (int d = 0; d < domains.length; d++)
+        {
+            DomainIndex domainIndex = new DomainIndex(new SyntheticGenerator(d).domain(domains[d]));
+            //no opponent scores every bid 0, then one, two and three opponents
+            for (int parties = 0; parties <= 3; parties++)
+            {
+                OpponentRegistry opponents = new OpponentRegistry(domainIndex);
+                for (int k = 0; k < 10 * parties; k++)
+                {
+                    long bid = (long) (random.nextDouble() * domainIndex.size());
+                    opponents.addOffer(new AgentID("party" + k % parties), domainIndex.toBid(bid));
+                }
+                JointOpponentSnapshot scores = opponents.getScores();
+                long[] sorted = bruteForce(domainIndex, scores);
+                for (int n : new int[]{0, 1, 3, 17, sorted.length, sorted.length + 5})
+                {
+                    assertArrayEquals(Arrays.copyOf(sorted, Math.min(n, sorted.length)), TopNSelector.select(scores, n));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every bid from high to low opponent score, lower id first on equal scores
+     */
+    private static long[] bruteForce(DomainIndex domainIndex, JointOpponentSnapshot scores)
+    {
+        Long[] bids = new Long[(int) domainIndex.size()];
+        for (int i = 0; i < bids.length; i++)
+        {
+            bids[i] = (long) i;
+        }
+        Arrays.sort(bids, (i, j) -> {
+            int c = Float.compare(scores.getUtility(j), scores.getUtility(i));
+            return c != 0 ? c : Long.compare(i, j);
+        });
+        long[] sorted = new long[bids.length];
+        for (int i = 0; i < bids.length; i++)
+        {
+            sorted[i] = bids[i];
+        }
+        return sorted;
+    }
+}